@@ -12,6 +12,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -26,6 +29,7 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -33,6 +37,8 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 import com.blackrook.sql.SQLConnection.Transaction;
 import com.blackrook.sql.SQLConnection.TransactionLevel;
@@ -94,11 +100,40 @@ public final class SQL
 	 * @param parameters list of parameters for parameterized queries.
 	 * @return the single result row returned, or null if no row returned.
 	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
-	 * @see #getResult(Connection, String, Object...)
+	 * @see #callRow(PreparedStatement, Object...)
 	 */
 	public static SQLRow getRow(Connection connection, String query, Object ... parameters)
 	{
-		return getResult(connection, query, parameters).getRow();
+		try (PreparedStatement statement = connection.prepareStatement(query))
+		{
+			return callRow(statement, parameters);
+		}
+		catch (SQLException e)
+		{
+			throw new SQLRuntimeException(e);
+		}
+	}
+	
+	/**
+	 * Performs a query on a connection that is expected to return at most one row and extracts the data into a single SQLRow.
+	 * @param connection the connection to create a prepared statement and execute from.
+	 * @param query the query statement to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the single result row returned, or null if no row returned.
+	 * @throws SQLRuntimeException if the query cannot be executed, the query causes an error, or the query returns more than one row.
+	 * @see #callSingleRow(PreparedStatement, Object...)
+	 * @since 1.4.0
+	 */
+	public static SQLRow getSingleRow(Connection connection, String query, Object ... parameters)
+	{
+		try (PreparedStatement statement = connection.prepareStatement(query))
+		{
+			return callSingleRow(statement, parameters);
+		}
+		catch (SQLException e)
+		{
+			throw new SQLRuntimeException(e);
+		}
 	}
 	
 	/**
@@ -193,17 +228,32 @@ public final class SQL
 	{
 		try (PreparedStatement statement = connection.prepareStatement(query))
 		{
-			int i = 1;
-			for (Object obj : parameters)
-				statement.setObject(i++, obj);
-
-			try (ResultSet resultSet = statement.executeQuery())
-			{
-				if (resultSet.next())
-					return createObjectFromResultRow(type, resultSet);
-				else
-					return null;
-			}
+			return callRow(type, statement, parameters);
+		}
+		catch (SQLException e)
+		{
+			throw new SQLRuntimeException(e);
+		}
+	}
+	
+	/**
+	 * Performs a query on a connection that is expected to return at most one row and creates an object from it, setting relevant fields.
+	 * Conversion of types is the same as {@link #getRow(Connection, Class, String, Object...)}.
+	 * @param <T> the returned data type.
+	 * @param connection the connection to create a prepared statement and execute from.
+	 * @param type the class type to instantiate.
+	 * @param query the query statement to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return an instantiated object with the pertinent fields set, or null if no rows.
+	 * @throws SQLRuntimeException if the query cannot be executed, the query causes an error, or the query returns more than one row.
+	 * @throws ClassCastException if one object type cannot be converted to another.
+	 * @since 1.4.0
+	 */
+	public static <T> T getSingleRow(Connection connection, Class<T> type, String query, Object ... parameters)
+	{
+		try (PreparedStatement statement = connection.prepareStatement(query))
+		{
+			return callSingleRow(type, statement, parameters);
 		}
 		catch (SQLException e)
 		{
@@ -231,6 +281,30 @@ public final class SQL
 		}
 	}
 	
+	/**
+	 * Performs a query on a connection and extracts the data into a columnar SQLResult.
+	 * Each column is held in a vector suited to its SQL type (numeric and boolean columns are not boxed,
+	 * and character columns are dictionary-encoded), and each row is a view of those vectors.
+	 * This uses far less memory than {@link #getResult(Connection, String, Object...)} for large results.
+	 * @param connection the connection to create a prepared statement and execute from.
+	 * @param query the query statement to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the result of the query.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @since 1.4.0
+	 */
+	public static SQLResult getColumnarResult(Connection connection, String query, Object ... parameters)
+	{
+		try (PreparedStatement statement = connection.prepareStatement(query))
+		{
+			return callColumnarStatement(statement, parameters);
+		}
+		catch (SQLException e)
+		{
+			throw new SQLRuntimeException(e);
+		}
+	}
+	
 	/**
 	 * Performs a query on a connection and creates objects from it, setting relevant fields.
 	 * <p>
@@ -323,14 +397,7 @@ public final class SQL
 	{
 		try (PreparedStatement statement = connection.prepareStatement(query))
 		{
-			int i = 1;
-			for (Object obj : parameters)
-				statement.setObject(i++, obj);
-
-			try (ResultSet resultSet = statement.executeQuery())
-			{
-				return createObjectsFromResultSet(type, resultSet);
-			}
+			return callStatement(type, statement, parameters);
 		}
 		catch (SQLException e)
 		{
@@ -338,6 +405,145 @@ public final class SQL
 		}
 	}
 
+	/**
+	 * Performs a query on a connection and returns a cursor that reads the resultant rows
+	 * one at a time as it is iterated through, using the default fetch size.
+	 * The cursor MUST be closed before the connection is closed or released.
+	 * @param connection the connection to create a prepared statement and execute from.
+	 * @param query the query statement to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the open cursor.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @see SQLCursor#DEFAULT_FETCH_SIZE
+	 * @since 1.4.0
+	 */
+	public static SQLCursor<SQLRow> getCursor(Connection connection, String query, Object ... parameters)
+	{
+		return getCursor(connection, SQLCursor.DEFAULT_FETCH_SIZE, query, parameters);
+	}
+	
+	/**
+	 * Performs a query on a connection and returns a cursor that reads the resultant rows
+	 * one at a time as it is iterated through.
+	 * The cursor MUST be closed before the connection is closed or released.
+	 * @param connection the connection to create a prepared statement and execute from.
+	 * @param fetchSize the amount of rows to fetch from the database at a time (a hint to the driver).
+	 * @param query the query statement to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the open cursor.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @since 1.4.0
+	 */
+	public static SQLCursor<SQLRow> getCursor(Connection connection, int fetchSize, String query, Object ... parameters)
+	{
+		return openCursor(connection, fetchSize, query, parameters, (result) ->
+		{
+			SQLColumnIndex columns = new SQLColumnIndex(getAllColumnNamesFromResultSet(result));
+			return (row) -> new SQLRow(row, columns);
+		});
+	}
+	
+	/**
+	 * Performs a query on a connection and returns a cursor that creates objects from the resultant rows
+	 * one at a time as it is iterated through, using the default fetch size.
+	 * The cursor MUST be closed before the connection is closed or released.
+	 * @param <T> the returned data type.
+	 * @param connection the connection to create a prepared statement and execute from.
+	 * @param type the class type to instantiate.
+	 * @param query the query statement to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the open cursor.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @see #getResult(Connection, Class, String, Object...)
+	 * @see SQLCursor#DEFAULT_FETCH_SIZE
+	 * @since 1.4.0
+	 */
+	public static <T> SQLCursor<T> getCursor(Connection connection, Class<T> type, String query, Object ... parameters)
+	{
+		return getCursor(connection, type, SQLCursor.DEFAULT_FETCH_SIZE, query, parameters);
+	}
+	
+	/**
+	 * Performs a query on a connection and returns a cursor that creates objects from the resultant rows
+	 * one at a time as it is iterated through.
+	 * The cursor MUST be closed before the connection is closed or released.
+	 * @param <T> the returned data type.
+	 * @param connection the connection to create a prepared statement and execute from.
+	 * @param type the class type to instantiate.
+	 * @param fetchSize the amount of rows to fetch from the database at a time (a hint to the driver).
+	 * @param query the query statement to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the open cursor.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @see #getResult(Connection, Class, String, Object...)
+	 * @since 1.4.0
+	 */
+	public static <T> SQLCursor<T> getCursor(Connection connection, Class<T> type, int fetchSize, String query, Object ... parameters)
+	{
+		return openCursor(connection, fetchSize, query, parameters,
+			(resultSet) -> getRowMapper(type, resultSet)::map
+		);
+	}
+	
+	/**
+	 * Performs a query on a connection and returns a lazily-populated stream of the resultant rows.
+	 * Rows are read from the open result only as the stream pulls them.
+	 * The stream MUST be closed before the connection is closed or released.
+	 * @param connection the connection to create a prepared statement and execute from.
+	 * @param query the query statement to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the open stream.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @see SQLCursor#stream()
+	 * @since 1.4.0
+	 */
+	public static Stream<SQLRow> streamResult(Connection connection, String query, Object ... parameters)
+	{
+		return getCursor(connection, query, parameters).stream();
+	}
+	
+	/**
+	 * Performs a query on a connection and returns a lazily-populated stream of objects created from the resultant rows.
+	 * Rows are read from the open result and converted only as the stream pulls them.
+	 * The stream MUST be closed before the connection is closed or released.
+	 * @param <T> the returned data type.
+	 * @param connection the connection to create a prepared statement and execute from.
+	 * @param type the class type to instantiate.
+	 * @param query the query statement to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the open stream.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @see #getResult(Connection, Class, String, Object...)
+	 * @see SQLCursor#stream()
+	 * @since 1.4.0
+	 */
+	public static <T> Stream<T> streamResult(Connection connection, Class<T> type, String query, Object ... parameters)
+	{
+		return getCursor(connection, type, query, parameters).stream();
+	}
+	
+	/**
+	 * Prepares a statement on a connection that can be executed many times with different parameters.
+	 * The returned handle MUST be closed before the connection is closed or released.
+	 * @param connection the connection to create a prepared statement from.
+	 * @param query the query to prepare.
+	 * @param generatedKeys if true, the statement returns generated keys from updates.
+	 * @return a new statement handle.
+	 * @throws SQLRuntimeException if the statement cannot be prepared.
+	 * @since 1.4.0
+	 */
+	public static SQLStatement prepare(Connection connection, String query, boolean generatedKeys)
+	{
+		try {
+			if (generatedKeys)
+				return new SQLStatement(connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS), true);
+			else
+				return new SQLStatement(connection.prepareStatement(query), false);
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		}
+	}
+	
 	/**
 	 * Performs an update query (INSERT, DELETE, UPDATE, or other commands that do not return rows)
 	 * on a connection and extracts the data/affected data/generated data into a SQLResult.
@@ -536,11 +742,7 @@ public final class SQL
 	{
 		try (PreparedStatement statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS))
 		{
-			int i = 0;
-			SQLResult[] out = new SQLResult[parameterList.size()];
-			for (Object[] params : parameterList)
-				out[i++] = callStatement(statement, true, params);
-			return out;
+			return callBatchResult(statement, parameterList);
 		}
 		catch (SQLException e)
 		{
@@ -649,10 +851,10 @@ public final class SQL
 		T[] out = null;
 		List<T> rows = null;
 
-		String[] columnNames = getAllColumnNamesFromResultSet(resultSet);
+		RowMapper<T> mapper = getRowMapper(objectType, resultSet);
 		rows = new LinkedList<T>();
 		while (resultSet.next())
-			rows.add(createObjectFromResultRow(objectType, resultSet, columnNames));
+			rows.add(mapper.map(resultSet));
 
 		rows.toArray(out = (T[])Array.newInstance(objectType, rows.size()));
 		return out;
@@ -688,29 +890,7 @@ public final class SQL
 	 */
 	public static <T> T createObjectFromResultRow(Class<T> objectType, ResultSet resultSet, String[] columnNames) throws SQLException
 	{
-		T object = Utils.create(objectType);
-		SQLTypeProfileFactory.Profile<T> profile = getProfile(objectType);
-	
-		for (int i = 0; i < columnNames.length; i++)
-		{
-			String column = columnNames[i];
-	
-			SQLTypeProfileFactory.Profile.FieldInfo fieldInfo = null; 
-			SQLTypeProfileFactory.Profile.MethodInfo setterInfo = null;
-			
-			if ((fieldInfo = Utils.isNull(profile.getPublicFieldsByAlias().get(column), (profile.getPublicFieldsByName().get(column)))) != null)
-			{
-				Class<?> type = fieldInfo.getType();
-				Utils.setFieldValue(object, fieldInfo.getField(), createForType(column, resultSet.getObject(i + 1), type));
-			}
-			else if ((setterInfo = Utils.isNull(profile.getSetterMethodsByAlias().get(column), (profile.getSetterMethodsByName().get(column)))) != null)
-			{
-				Class<?> type = setterInfo.getType();
-				Utils.invokeBlind(setterInfo.getMethod(), object, createForType(column, resultSet.getObject(i + 1), type));
-			}
-		}
-	
-		return object;
+		return getRowMapper(objectType, columnNames, getColumnTypesFromResultSet(resultSet, columnNames.length)).map(resultSet);
 	}
 
 	/**
@@ -725,9 +905,7 @@ public final class SQL
 	{
 		SQLResult out = null;
 	
-		int i = 1;
-		for (Object obj : parameters)
-			statement.setObject(i++, obj);
+		SQLParameterBinder.bind(statement, parameters);
 		
 		if (update)
 		{
@@ -747,6 +925,113 @@ public final class SQL
 		return out;
 	}
 
+	/**
+	 * Performs a query on a statement and creates objects from the resultant rows, setting relevant fields on them.
+	 * @param <T> the returned data type.
+	 * @param type the class type to instantiate.
+	 * @param statement the statement to execute.
+	 * @param parameters the parameters to pass to the query.
+	 * @return an array of instantiated objects with the pertinent fields set for each row.
+	 * @throws SQLException if a SQL exception occurs.
+	 * @throws ClassCastException if one object type cannot be converted to another.
+	 * @see #getResult(Connection, Class, String, Object...)
+	 * @since 1.4.0
+	 */
+	public static <T> T[] callStatement(Class<T> type, PreparedStatement statement, Object ... parameters) throws SQLException
+	{
+		SQLParameterBinder.bind(statement, parameters);
+		
+		try (ResultSet resultSet = statement.executeQuery())
+		{
+			return createObjectsFromResultSet(type, resultSet);
+		}
+	}
+	
+	/**
+	 * Performs a query on a statement and extracts the data into a columnar SQLResult object.
+	 * @param statement the statement to execute.
+	 * @param parameters the parameters to pass to the query.
+	 * @return the query result returned.
+	 * @throws SQLException if a SQL exception occurs.
+	 * @see #getColumnarResult(Connection, String, Object...)
+	 * @since 1.4.0
+	 */
+	public static SQLResult callColumnarStatement(PreparedStatement statement, Object ... parameters) throws SQLException
+	{
+		SQLParameterBinder.bind(statement, parameters);
+		
+		try (ResultSet resultSet = statement.executeQuery())
+		{
+			return new SQLResult(resultSet, true);
+		}
+	}
+	
+	/**
+	 * Performs a query on a statement and extracts the first row into a SQLRow.
+	 * The statement's maximum row count and fetch size are set to 1 for the query, so that
+	 * no more than one row is ever fetched, and restored afterward.
+	 * @param statement the statement to execute.
+	 * @param parameters the parameters to pass to the query.
+	 * @return the first row returned, or null if no rows.
+	 * @throws SQLException if a SQL exception occurs.
+	 * @since 1.4.0
+	 */
+	public static SQLRow callRow(PreparedStatement statement, Object ... parameters) throws SQLException
+	{
+		return callRow(statement, false, parameters);
+	}
+	
+	/**
+	 * Performs a query on a statement that is expected to return at most one row and extracts it into a SQLRow.
+	 * The statement's maximum row count and fetch size are set to 2 for the query (enough to detect a second row), 
+	 * and restored afterward.
+	 * @param statement the statement to execute.
+	 * @param parameters the parameters to pass to the query.
+	 * @return the single row returned, or null if no rows.
+	 * @throws SQLException if a SQL exception occurs, or if the query returns more than one row.
+	 * @since 1.4.0
+	 */
+	public static SQLRow callSingleRow(PreparedStatement statement, Object ... parameters) throws SQLException
+	{
+		return callRow(statement, true, parameters);
+	}
+	
+	/**
+	 * Performs a query on a statement and creates an object from the first row, setting relevant fields.
+	 * The statement's maximum row count and fetch size are set to 1 for the query, so that
+	 * no more than one row is ever fetched, and restored afterward.
+	 * @param <T> the returned data type.
+	 * @param type the class type to instantiate.
+	 * @param statement the statement to execute.
+	 * @param parameters the parameters to pass to the query.
+	 * @return an instantiated object with the pertinent fields set, or null if no rows.
+	 * @throws SQLException if a SQL exception occurs.
+	 * @throws ClassCastException if one object type cannot be converted to another.
+	 * @since 1.4.0
+	 */
+	public static <T> T callRow(Class<T> type, PreparedStatement statement, Object ... parameters) throws SQLException
+	{
+		return callRow(type, statement, false, parameters);
+	}
+	
+	/**
+	 * Performs a query on a statement that is expected to return at most one row and creates an object from it, setting relevant fields.
+	 * The statement's maximum row count and fetch size are set to 2 for the query (enough to detect a second row), 
+	 * and restored afterward.
+	 * @param <T> the returned data type.
+	 * @param type the class type to instantiate.
+	 * @param statement the statement to execute.
+	 * @param parameters the parameters to pass to the query.
+	 * @return an instantiated object with the pertinent fields set, or null if no rows.
+	 * @throws SQLException if a SQL exception occurs, or if the query returns more than one row.
+	 * @throws ClassCastException if one object type cannot be converted to another.
+	 * @since 1.4.0
+	 */
+	public static <T> T callSingleRow(Class<T> type, PreparedStatement statement, Object ... parameters) throws SQLException
+	{
+		return callRow(type, statement, true, parameters);
+	}
+	
 	/**
 	 * Performs a series of update queries on a single statement on a connection and returns the batch result, 
 	 * using a default batching amount ({@value SQLCallable#DEFAULT_BATCH_SIZE}).
@@ -815,12 +1100,13 @@ public final class SQL
 		int[] out = new int[parameterList.size()];
 		int cursor = 0;
 		int batch = 0;
+		SQLParameterBinder[] plan = null;
 	
 		for (Object[] parameters : parameterList)
 		{
-			int n = 1;
-			for (Object obj : parameters)
-				statement.setObject(n++, obj);
+			if (plan == null)
+				plan = SQLParameterBinder.plan(parameters);
+			SQLParameterBinder.bind(statement, plan, parameters);
 			
 			statement.addBatch();
 			batch++;
@@ -843,6 +1129,35 @@ public final class SQL
 		return out;
 	}
 
+	/**
+	 * Performs an update query on a single statement once per set of parameters, 
+	 * and extracts each set of result data into a SQLResult.
+	 * @param statement the statement to execute.
+	 * @param parameterList the list of parameter sets to pass to the query for each update. 
+	 * @return the list of update results returned, each corresponding to an update.
+	 * @throws SQLException if a SQL exception occurs.
+	 * @see #getUpdateBatchResult(Connection, String, Collection)
+	 * @since 1.4.0
+	 */
+	public static SQLResult[] callBatchResult(PreparedStatement statement, Collection<Object[]> parameterList) throws SQLException
+	{
+		int i = 0;
+		SQLResult[] out = new SQLResult[parameterList.size()];
+		SQLParameterBinder[] plan = null;
+		for (Object[] params : parameterList)
+		{
+			if (plan == null)
+				plan = SQLParameterBinder.plan(params);
+			SQLParameterBinder.bind(statement, plan, params);
+			int rows = statement.executeUpdate();
+			try (ResultSet resultSet = statement.getGeneratedKeys())
+			{
+				out[i++] = createResult(resultSet, true, rows);
+			}
+		}
+		return out;
+	}
+	
 	/**
 	 * Performs a series of update queries on a single statement on a connection and returns the batch result, 
 	 * using a default batching amount ({@value SQLCallable#DEFAULT_BATCH_SIZE}).
@@ -907,12 +1222,13 @@ public final class SQL
 		long[] out = new long[parameterList.size()];
 		int cursor = 0;
 		int batch = 0;
+		SQLParameterBinder[] plan = null;
 	
 		for (Object[] parameters : parameterList)
 		{
-			int n = 1;
-			for (Object obj : parameters)
-				statement.setObject(n++, obj);
+			if (plan == null)
+				plan = SQLParameterBinder.plan(parameters);
+			SQLParameterBinder.bind(statement, plan, parameters);
 			
 			statement.addBatch();
 			batch++;
@@ -948,6 +1264,60 @@ public final class SQL
 		return PROFILE_FACTORY.getProfile(clazz);
 	}
 
+	/**
+	 * Gets the row mapper for a type and set of result columns.
+	 * Mappers are made once per type and column set, and stored in the type's profile.
+	 * @param <T> the class type.
+	 * @param clazz the class.
+	 * @param columnNames the names of the result columns, in order.
+	 * @param columnTypes the SQL types of the result columns (see {@link java.sql.Types}), in order.
+	 * @return the corresponding mapper.
+	 */
+	static <T> RowMapper<T> getRowMapper(Class<T> clazz, String[] columnNames, int[] columnTypes)
+	{
+		return getProfile(clazz).getRowMapper(columnNames, columnTypes);
+	}
+	
+	/**
+	 * Gets the row mapper for a type and the columns of a result set.
+	 * @param <T> the class type.
+	 * @param clazz the class.
+	 * @param resultSet the result set to read the columns of.
+	 * @return the corresponding mapper.
+	 * @throws SQLException if a SQL exception occurs.
+	 */
+	static <T> RowMapper<T> getRowMapper(Class<T> clazz, ResultSet resultSet) throws SQLException
+	{
+		String[] columnNames = getAllColumnNamesFromResultSet(resultSet);
+		return getRowMapper(clazz, columnNames, getColumnTypesFromResultSet(resultSet, columnNames.length));
+	}
+	
+	/**
+	 * Creates a row mapper for a type and the columns of a result set that sets every member reflectively, 
+	 * with boxed values, the way that rows were mapped before members were set through method handles.
+	 * The mapper is not cached. This is only meant as a baseline for measuring the regular mappers.
+	 * @param <T> the class type.
+	 * @param clazz the class.
+	 * @param resultSet the result set to read the columns of.
+	 * @return a new mapper.
+	 * @throws SQLException if a SQL exception occurs.
+	 */
+	static <T> RowMapper<T> createReflectiveRowMapper(Class<T> clazz, ResultSet resultSet) throws SQLException
+	{
+		String[] columnNames = getAllColumnNamesFromResultSet(resultSet);
+		return new RowMapper<>(clazz, getProfile(clazz), columnNames, getColumnTypesFromResultSet(resultSet, columnNames.length), true);
+	}
+	
+	// Gets the SQL types of the first columns of a result set.
+	private static int[] getColumnTypesFromResultSet(ResultSet set, int count) throws SQLException
+	{
+		ResultSetMetaData md = set.getMetaData();
+		int[] out = new int[count];
+		for (int i = 0; i < out.length; i++)
+			out[i] = md.getColumnType(i+1);
+		return out;
+	}
+	
 	/**
 	 * Creates a new instance of an object for placement in a POJO or elsewhere.
 	 * @param <T> the return object type.
@@ -962,6 +1332,122 @@ public final class SQL
 		return DEFAULT_CONVERTER.createForType(memberName, object, targetType);
 	}
 
+	/**
+	 * Performs a row query capped to one row (or two, if <code>single</code>, in order to detect extra rows).
+	 */
+	private static SQLRow callRow(PreparedStatement statement, boolean single, Object ... parameters) throws SQLException
+	{
+		SQLParameterBinder.bind(statement, parameters);
+		
+		int previousMaxRows = statement.getMaxRows();
+		int previousFetchSize = statement.getFetchSize();
+		statement.setMaxRows(single ? 2 : 1);
+		statement.setFetchSize(single ? 2 : 1);
+		try (ResultSet resultSet = statement.executeQuery())
+		{
+			if (!resultSet.next())
+				return null;
+			SQLRow out = new SQLRow(resultSet, new SQLColumnIndex(getAllColumnNamesFromResultSet(resultSet)));
+			if (single && resultSet.next())
+				throw new SQLException("Query returned more than one row.");
+			return out;
+		}
+		finally
+		{
+			statement.setMaxRows(previousMaxRows);
+			statement.setFetchSize(previousFetchSize);
+		}
+	}
+	
+	/**
+	 * Performs an object row query capped to one row (or two, if <code>single</code>, in order to detect extra rows).
+	 */
+	private static <T> T callRow(Class<T> type, PreparedStatement statement, boolean single, Object ... parameters) throws SQLException
+	{
+		SQLParameterBinder.bind(statement, parameters);
+		
+		int previousMaxRows = statement.getMaxRows();
+		int previousFetchSize = statement.getFetchSize();
+		statement.setMaxRows(single ? 2 : 1);
+		statement.setFetchSize(single ? 2 : 1);
+		try (ResultSet resultSet = statement.executeQuery())
+		{
+			if (!resultSet.next())
+				return null;
+			T out = createObjectFromResultRow(type, resultSet);
+			if (single && resultSet.next())
+				throw new SQLException("Query returned more than one row.");
+			return out;
+		}
+		finally
+		{
+			statement.setMaxRows(previousMaxRows);
+			statement.setFetchSize(previousFetchSize);
+		}
+	}
+	
+	/**
+	 * Prepares and executes a forward-only query and wraps it in a cursor.
+	 * The row reader is made from the result's column names.
+	 * The statement is closed if anything fails before the cursor is returned.
+	 */
+	private static <T> SQLCursor<T> openCursor(Connection connection, int fetchSize, String query, Object[] parameters, RowReaderFactory<T> readerFactory)
+	{
+		PreparedStatement statement = null;
+		ResultSet resultSet = null;
+		boolean opened = false;
+		try
+		{
+			statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			statement.setFetchSize(fetchSize);
+			
+			SQLParameterBinder.bind(statement, parameters);
+			
+			resultSet = statement.executeQuery();
+			SQLCursor<T> out = new SQLCursor<>(statement, resultSet, readerFactory.create(resultSet));
+			opened = true;
+			return out;
+		}
+		catch (SQLException e)
+		{
+			throw new SQLRuntimeException(e);
+		}
+		finally
+		{
+			if (!opened)
+			{
+				try {
+					if (resultSet != null)
+						resultSet.close();
+				} catch (SQLException e) {
+					// Do nothing.
+				}
+				try {
+					if (statement != null)
+						statement.close();
+				} catch (SQLException e) {
+					// Do nothing.
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Creates the row reader for an open result.
+	 * @param <T> the row type.
+	 */
+	@FunctionalInterface
+	private interface RowReaderFactory<T>
+	{
+		/**
+		 * Creates the row reader.
+		 * @param resultSet the open result set.
+		 * @return the reader to use for each row.
+		 * @throws SQLException if a SQL exception occurs.
+		 */
+		SQLCursor.RowReader<T> create(ResultSet resultSet) throws SQLException;
+	}
+	
 	/**
 	 * Creates a {@link SQLResult} from a result set.
 	 * The result set is assumed to be at the beginning of the set.
@@ -978,6 +1464,429 @@ public final class SQL
 		return out;
 	}
 
+	/**
+	 * A mapper of result rows to new objects of a single type, for a single set of result columns and column types.
+	 * Each column is resolved to its field or setter once, when the mapper is made, 
+	 * so that mapping a row is just a pass over the matched columns.
+	 * <p>Members are set through method handles where they are accessible (falling back to reflection where not).
+	 * Primitive members that are filled from numeric or boolean columns that they can hold without loss
+	 * are read and set without boxing.
+	 * @param <T> the object type.
+	 */
+	static final class RowMapper<T>
+	{
+		/** Generic member handle type. */
+		private static final MethodType OBJECT_SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+		
+		/** The object type. */
+		private final Class<T> type;
+		/** The public no-arg constructor, if accessible. */
+		private final MethodHandle constructor;
+		/** The matched columns, in result order. */
+		private final Slot[] slots;
+		
+		private RowMapper(Class<T> type, SQLTypeProfileFactory.Profile<T> profile, String[] columnNames, int[] columnTypes, boolean reflective)
+		{
+			this.type = type;
+			this.constructor = reflective ? null : createConstructorHandle(type);
+			
+			List<Slot> slots = new ArrayList<>(columnNames.length);
+			for (int i = 0; i < columnNames.length; i++)
+			{
+				String column = columnNames[i];
+				
+				SQLTypeProfileFactory.Profile.FieldInfo fieldInfo = null; 
+				SQLTypeProfileFactory.Profile.MethodInfo setterInfo = null;
+				
+				if ((fieldInfo = Utils.isNull(profile.getPublicFieldsByAlias().get(column), (profile.getPublicFieldsByName().get(column)))) != null)
+					slots.add(createSlot(i + 1, column, columnTypes[i], fieldInfo.getType(), reflective ? null : fieldInfo.getSetterHandle(), fieldInfo.getField(), null));
+				else if ((setterInfo = Utils.isNull(profile.getSetterMethodsByAlias().get(column), (profile.getSetterMethodsByName().get(column)))) != null)
+					slots.add(createSlot(i + 1, column, columnTypes[i], setterInfo.getType(), reflective ? null : setterInfo.getHandle(), null, setterInfo.getMethod()));
+			}
+			this.slots = slots.toArray(new Slot[slots.size()]);
+		}
+		
+		/**
+		 * @return the type of object that this makes.
+		 */
+		Class<T> getType()
+		{
+			return type;
+		}
+		
+		/**
+		 * Creates a new object from the current result row.
+		 * @param resultSet the result set, positioned on the row to read.
+		 * @return a new object with the relevant fields set.
+		 * @throws SQLException if a SQL exception occurs.
+		 * @throws ClassCastException if any incoming types cannot be converted.
+		 */
+		T map(ResultSet resultSet) throws SQLException
+		{
+			T object = create();
+			for (int i = 0; i < slots.length; i++)
+				slots[i].apply(object, resultSet);
+			return object;
+		}
+		
+		private T create()
+		{
+			if (constructor == null)
+				return Utils.create(type);
+			try {
+				return type.cast((Object)constructor.invokeExact());
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new RuntimeException(t);
+			}
+		}
+		
+		private static MethodHandle createConstructorHandle(Class<?> type)
+		{
+			try {
+				return MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class)).asType(MethodType.methodType(Object.class));
+			} catch (NoSuchMethodException | IllegalAccessException e) {
+				return null;
+			}
+		}
+		
+		// Creates the slot for a column and member, using a primitive slot if the column type fits the member type.
+		private static Slot createSlot(int column, String name, int sqlType, Class<?> type, MethodHandle handle, Field field, Method setter)
+		{
+			if (handle == null)
+				return new ReflectionSlot(column, name, type, field, setter);
+			
+			switch (sqlType)
+			{
+				case Types.BIGINT:
+					if (type == Long.TYPE)
+						return new LongSlot(column, handle);
+					break;
+				case Types.INTEGER:
+					if (type == Long.TYPE)
+						return new LongSlot(column, handle);
+					else if (type == Integer.TYPE)
+						return new IntSlot(column, handle);
+					break;
+				case Types.SMALLINT:
+				case Types.TINYINT:
+					if (type == Long.TYPE)
+						return new LongSlot(column, handle);
+					else if (type == Integer.TYPE)
+						return new IntSlot(column, handle);
+					else if (type == Short.TYPE)
+						return new ShortSlot(column, handle);
+					break;
+				case Types.DOUBLE:
+				case Types.FLOAT:
+					if (type == Double.TYPE)
+						return new DoubleSlot(column, handle);
+					break;
+				case Types.REAL:
+					if (type == Float.TYPE)
+						return new FloatSlot(column, handle);
+					break;
+				case Types.BOOLEAN:
+				case Types.BIT:
+					if (type == Boolean.TYPE)
+						return new BooleanSlot(column, handle);
+					break;
+			}
+			return new HandleSlot(column, name, type, handle);
+		}
+		
+		// Rethrows what a method handle invocation throws, wrapping checked exceptions.
+		private static RuntimeException rethrow(Throwable t)
+		{
+			if (t instanceof RuntimeException)
+				return (RuntimeException)t;
+			else if (t instanceof Error)
+				throw (Error)t;
+			return new RuntimeException(t);
+		}
+		
+		/**
+		 * A single matched column.
+		 */
+		private static abstract class Slot
+		{
+			/** Column index (1-based). */
+			protected final int column;
+			
+			private Slot(int column)
+			{
+				this.column = column;
+			}
+			
+			/**
+			 * Reads this slot's column value and applies it to the object.
+			 * @param object the object to set the value on.
+			 * @param resultSet the result set to read from.
+			 * @throws SQLException if a SQL exception occurs.
+			 */
+			abstract void apply(Object object, ResultSet resultSet) throws SQLException;
+		}
+		
+		/**
+		 * A column that is converted as an object.
+		 */
+		private static abstract class ObjectSlot extends Slot
+		{
+			/** Column name. */
+			private final String name;
+			/** Member type. */
+			private final Class<?> type;
+			/** Member type, boxed if primitive. */
+			private final Class<?> valueType;
+			
+			private ObjectSlot(int column, String name, Class<?> type)
+			{
+				super(column);
+				this.name = name;
+				this.type = type;
+				this.valueType = box(type);
+			}
+			
+			// Reads and converts the column value.
+			protected Object read(ResultSet resultSet) throws SQLException
+			{
+				Object value = resultSet.getObject(column);
+				// values that are already the member's type skip conversion.
+				if (value == null || !valueType.isInstance(value))
+					value = createForType(name, value, type);
+				return value;
+			}
+			
+			private static Class<?> box(Class<?> type)
+			{
+				if (!type.isPrimitive())
+					return type;
+				else if (type == Boolean.TYPE)
+					return Boolean.class;
+				else if (type == Byte.TYPE)
+					return Byte.class;
+				else if (type == Short.TYPE)
+					return Short.class;
+				else if (type == Integer.TYPE)
+					return Integer.class;
+				else if (type == Float.TYPE)
+					return Float.class;
+				else if (type == Long.TYPE)
+					return Long.class;
+				else if (type == Double.TYPE)
+					return Double.class;
+				else if (type == Character.TYPE)
+					return Character.class;
+				return Void.class;
+			}
+		}
+		
+		/**
+		 * A column set on an inaccessible member through reflection.
+		 */
+		private static final class ReflectionSlot extends ObjectSlot
+		{
+			/** Field to set, if field. */
+			private final Field field;
+			/** Setter to call, if setter. */
+			private final Method setter;
+			
+			private ReflectionSlot(int column, String name, Class<?> type, Field field, Method setter)
+			{
+				super(column, name, type);
+				this.field = field;
+				this.setter = setter;
+			}
+			
+			@Override
+			void apply(Object object, ResultSet resultSet) throws SQLException
+			{
+				if (field != null)
+					Utils.setFieldValue(object, field, read(resultSet));
+				else
+					Utils.invokeBlind(setter, object, read(resultSet));
+			}
+		}
+		
+		/**
+		 * A column set through a method handle.
+		 */
+		private static final class HandleSlot extends ObjectSlot
+		{
+			private final MethodHandle handle;
+			
+			private HandleSlot(int column, String name, Class<?> type, MethodHandle handle)
+			{
+				super(column, name, type);
+				this.handle = handle.asType(OBJECT_SETTER);
+			}
+			
+			@Override
+			void apply(Object object, ResultSet resultSet) throws SQLException
+			{
+				Object value = read(resultSet);
+				try {
+					handle.invokeExact(object, value);
+				} catch (Throwable t) {
+					throw rethrow(t);
+				}
+			}
+		}
+		
+		/**
+		 * A long member set from an integral column.
+		 */
+		private static final class LongSlot extends Slot
+		{
+			private final MethodHandle handle;
+			
+			private LongSlot(int column, MethodHandle handle)
+			{
+				super(column);
+				this.handle = handle.asType(MethodType.methodType(void.class, Object.class, long.class));
+			}
+			
+			@Override
+			void apply(Object object, ResultSet resultSet) throws SQLException
+			{
+				long value = resultSet.getLong(column);
+				try {
+					handle.invokeExact(object, value);
+				} catch (Throwable t) {
+					throw rethrow(t);
+				}
+			}
+		}
+		
+		/**
+		 * An int member set from an integral column.
+		 * Some drivers report 64-bit values as {@link Types#INTEGER}, so the value is read as a long
+		 * and narrowed, the same way that a boxed value is converted.
+		 */
+		private static final class IntSlot extends Slot
+		{
+			private final MethodHandle handle;
+			
+			private IntSlot(int column, MethodHandle handle)
+			{
+				super(column);
+				this.handle = handle.asType(MethodType.methodType(void.class, Object.class, int.class));
+			}
+			
+			@Override
+			void apply(Object object, ResultSet resultSet) throws SQLException
+			{
+				int value = (int)resultSet.getLong(column);
+				try {
+					handle.invokeExact(object, value);
+				} catch (Throwable t) {
+					throw rethrow(t);
+				}
+			}
+		}
+		
+		/**
+		 * A short member set from a small integral column.
+		 */
+		private static final class ShortSlot extends Slot
+		{
+			private final MethodHandle handle;
+			
+			private ShortSlot(int column, MethodHandle handle)
+			{
+				super(column);
+				this.handle = handle.asType(MethodType.methodType(void.class, Object.class, short.class));
+			}
+			
+			@Override
+			void apply(Object object, ResultSet resultSet) throws SQLException
+			{
+				short value = resultSet.getShort(column);
+				try {
+					handle.invokeExact(object, value);
+				} catch (Throwable t) {
+					throw rethrow(t);
+				}
+			}
+		}
+		
+		/**
+		 * A double member set from a double-precision column.
+		 */
+		private static final class DoubleSlot extends Slot
+		{
+			private final MethodHandle handle;
+			
+			private DoubleSlot(int column, MethodHandle handle)
+			{
+				super(column);
+				this.handle = handle.asType(MethodType.methodType(void.class, Object.class, double.class));
+			}
+			
+			@Override
+			void apply(Object object, ResultSet resultSet) throws SQLException
+			{
+				double value = resultSet.getDouble(column);
+				try {
+					handle.invokeExact(object, value);
+				} catch (Throwable t) {
+					throw rethrow(t);
+				}
+			}
+		}
+		
+		/**
+		 * A float member set from a single-precision column.
+		 */
+		private static final class FloatSlot extends Slot
+		{
+			private final MethodHandle handle;
+			
+			private FloatSlot(int column, MethodHandle handle)
+			{
+				super(column);
+				this.handle = handle.asType(MethodType.methodType(void.class, Object.class, float.class));
+			}
+			
+			@Override
+			void apply(Object object, ResultSet resultSet) throws SQLException
+			{
+				float value = resultSet.getFloat(column);
+				try {
+					handle.invokeExact(object, value);
+				} catch (Throwable t) {
+					throw rethrow(t);
+				}
+			}
+		}
+		
+		/**
+		 * A boolean member set from a boolean column.
+		 */
+		private static final class BooleanSlot extends Slot
+		{
+			private final MethodHandle handle;
+			
+			private BooleanSlot(int column, MethodHandle handle)
+			{
+				super(column);
+				this.handle = handle.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+			}
+			
+			@Override
+			void apply(Object object, ResultSet resultSet) throws SQLException
+			{
+				boolean value = resultSet.getBoolean(column);
+				try {
+					handle.invokeExact(object, value);
+				} catch (Throwable t) {
+					throw rethrow(t);
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Type converter class for converting types to others.
 	 */
@@ -1653,13 +2562,15 @@ public final class SQL
 
 	/**
 	 * A factory that produces type profiles for POJOs and data objects.
+	 * <p>Profiles, and the row mappers of each profile, are cached in concurrent maps and made without holding a lock,
+	 * so that threads are never blocked on a monitor: if two threads make the same one at once, one of them is discarded.
 	 */
 	private static class SQLTypeProfileFactory
 	{
 		/** The policy used by this factory. */
 		private MemberPolicy policy;
 		/** Generated profiles. */
-		private HashMap<Class<?>, Profile<?>> generatedProfiles;
+		private ConcurrentHashMap<Class<?>, Profile<?>> generatedProfiles;
 		
 		/**
 		 * Creates a new TypeProfileFactory.
@@ -1670,7 +2581,7 @@ public final class SQL
 		SQLTypeProfileFactory(MemberPolicy policy)
 		{
 			this.policy = policy;
-			this.generatedProfiles = new HashMap<>(8);
+			this.generatedProfiles = new ConcurrentHashMap<>(8);
 		}
 	
 		/**
@@ -1684,22 +2595,13 @@ public final class SQL
 		@SuppressWarnings("unchecked")
 		public <T> Profile<T> getProfile(Class<T> clazz)
 		{
-			Profile<T> out = null;
+			Profile<T> out;
 			if ((out = (Profile<T>)generatedProfiles.get(clazz)) == null)
 			{
-				synchronized (generatedProfiles)
-				{
-					// early out.
-					if ((out = (Profile<T>)generatedProfiles.get(clazz)) == null)
-					{
-						out = new Profile<>(clazz, policy);
-						generatedProfiles.put(clazz, out);
-					}
-				}
+				Profile<T> created = new Profile<>(clazz, policy);
+				if ((out = (Profile<T>)generatedProfiles.putIfAbsent(clazz, created)) == null)
+					out = created;
 			}
-			else
-				out = (Profile<T>)generatedProfiles.get(clazz);
-			
 			return out;
 		}
 		
@@ -1865,9 +2767,16 @@ public final class SQL
 			/** Map of setters by alias. */
 			private Map<String, MethodInfo> setterMethodsByAlias;
 			
+			/** The profiled class. */
+			private Class<T> type;
+			/** Map of result column sets to row mappers. */
+			private Map<ColumnSet, RowMapper<T>> rowMappers;
+			
 			// Creates a profile from a class. 
-			private Profile(Class<? extends T> inputClass, MemberPolicy policy)
+			private Profile(Class<T> inputClass, MemberPolicy policy)
 			{
+				type = inputClass;
+				rowMappers = new ConcurrentHashMap<>(4);
 				publicFieldsByName = new HashMap<String, FieldInfo>(4);
 				getterMethodsByName = new HashMap<String, MethodInfo>(4);
 				setterMethodsByName = new HashMap<String, MethodInfo>(4);
@@ -1973,6 +2882,58 @@ public final class SQL
 				return setterMethodsByAlias;
 			}
 	
+			/**
+			 * Returns the row mapper for a set of result columns, making it if it was not made yet.
+			 * <p>This method is thread-safe.
+			 * @param columnNames the names of the result columns, in order.
+			 * @param columnTypes the SQL types of the result columns, in order.
+			 * @return the row mapper.
+			 */
+			public RowMapper<T> getRowMapper(String[] columnNames, int[] columnTypes)
+			{
+				RowMapper<T> out;
+				if ((out = rowMappers.get(new ColumnSet(columnNames, columnTypes))) == null)
+				{
+					ColumnSet key = new ColumnSet(columnNames.clone(), columnTypes.clone());
+					RowMapper<T> created = new RowMapper<>(type, this, key.names, key.types, false);
+					if ((out = rowMappers.putIfAbsent(key, created)) == null)
+						out = created;
+				}
+				return out;
+			}
+			
+			/**
+			 * A row mapper key: result column names and types.
+			 */
+			private static final class ColumnSet
+			{
+				private final String[] names;
+				private final int[] types;
+				private final int hash;
+				
+				private ColumnSet(String[] names, int[] types)
+				{
+					this.names = names;
+					this.types = types;
+					this.hash = Arrays.hashCode(names) * 31 + Arrays.hashCode(types);
+				}
+				
+				@Override
+				public int hashCode()
+				{
+					return hash;
+				}
+				
+				@Override
+				public boolean equals(Object obj)
+				{
+					if (!(obj instanceof ColumnSet))
+						return false;
+					ColumnSet set = (ColumnSet)obj;
+					return hash == set.hash && Arrays.equals(types, set.types) && Arrays.equals(names, set.names);
+				}
+			}
+	
 			/**
 			 * Field information.
 			 * Contains the relevant type and getter/setter method.
@@ -1985,12 +2946,19 @@ public final class SQL
 				private Field field;
 				/** Alias, if any. */
 				private String alias;
+				/** Setter handle, if accessible. */
+				private MethodHandle setterHandle;
 	
 				private FieldInfo(Class<?> type, Field field, String alias)
 				{
 					this.type = type;
 					this.field = field;
 					this.alias = alias;
+					try {
+						this.setterHandle = MethodHandles.publicLookup().unreflectSetter(field);
+					} catch (IllegalAccessException e) {
+						this.setterHandle = null; // final, or in an inaccessible class.
+					}
 				}
 	
 				/**
@@ -2009,6 +2977,14 @@ public final class SQL
 					return field;
 				}
 				
+				/**
+				 * @return a method handle that sets this field, or null if it cannot be set without reflection.
+				 */
+				public MethodHandle getSetterHandle()
+				{
+					return setterHandle;
+				}
+				
 				/**
 				 * @return the alias for the field info, if any.
 				 */
@@ -2032,12 +3008,19 @@ public final class SQL
 				private Method method;
 				/** Alias, if any. */
 				private String alias;
+				/** Method handle, if accessible. */
+				private MethodHandle handle;
 	
 				private MethodInfo(Class<?> type, Method method, String alias)
 				{
 					this.type = type;
 					this.method = method;
 					this.alias = alias;
+					try {
+						this.handle = MethodHandles.publicLookup().unreflect(method);
+					} catch (IllegalAccessException e) {
+						this.handle = null; // in an inaccessible class.
+					}
 				}
 	
 				/**
@@ -2056,6 +3039,14 @@ public final class SQL
 					return method;
 				}
 				
+				/**
+				 * @return a method handle for the method, or null if it cannot be called without reflection.
+				 */
+				public MethodHandle getHandle()
+				{
+					return handle;
+				}
+				
 				/**
 				 * @return the alias for the field info, if any.
 				 */
@@ -20,6 +20,8 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
@@ -39,8 +41,12 @@ public abstract class SQLAbstractDAO
 {
 	/** Database Connection Pool. */
 	private SQLPool pool;
+	/** Database Connection Pool Partition, if any. */
+	private SQLPool.Partition partition;
 	/** Database Connection Acquisition Timeout. */
 	private long acquireTimeout;
+	/** Database Connection Acquisition Priority. */
+	private SQLPool.Priority priority;
 	
 	/**
 	 * Creates this DAO attached to the provided pool, no connection acquisition timeout.
@@ -59,9 +65,35 @@ public abstract class SQLAbstractDAO
 	protected SQLAbstractDAO(SQLPool pool, long acquireTimeout)
 	{
 		this.pool = pool;
+		this.partition = null;
 		this.acquireTimeout = acquireTimeout;
+		this.priority = SQLPool.Priority.NORMAL;
 	}
 
+	/**
+	 * Creates this DAO attached to the provided pool partition, no connection acquisition timeout.
+	 * @param partition the pool partition to acquire connections through.
+	 * @since 1.4.0
+	 */
+	protected SQLAbstractDAO(SQLPool.Partition partition)
+	{
+		this(partition, 0L);
+	}
+	
+	/**
+	 * Creates this DAO attached to the provided pool partition.
+	 * Connections are retrieved through the partition, so that this DAO cannot have more connections in use than the partition allows.
+	 * @param partition the pool partition to acquire connections through.
+	 * @param acquireTimeout the connection acquisition timeout in milliseconds.
+	 * @since 1.4.0
+	 * @see SQLPool#createPartition(String, int, boolean)
+	 */
+	protected SQLAbstractDAO(SQLPool.Partition partition, long acquireTimeout)
+	{
+		this(partition.getPool(), acquireTimeout);
+		this.partition = partition;
+	}
+	
 	/**
 	 * Sets this DAO's connection acquisition timeout.
 	 * @param acquireTimeout the new timeout in milliseconds.
@@ -72,6 +104,18 @@ public abstract class SQLAbstractDAO
 		this.acquireTimeout = acquireTimeout;
 	}
 	
+	/**
+	 * Sets this DAO's connection acquisition priority, used by every call that does not specify one.
+	 * By default, this is {@link SQLPool.Priority#NORMAL}.
+	 * @param priority the new priority.
+	 * @since 1.4.0
+	 * @see SQLPool#getAvailableConnection(SQLPool.Priority, long)
+	 */
+	protected void setPriority(SQLPool.Priority priority)
+	{
+		this.priority = priority;
+	}
+	
 	/**
 	 * Creates a query builder that is pre-populated with a query fragment.
 	 * @param queryFragment the query resource name.
@@ -91,20 +135,83 @@ public abstract class SQLAbstractDAO
 	 * @throws DataAccessFailureException if any other exception occurs.
 	 */
 	protected <R> R call(SQLConnectionFunction<R> handler)
+	{
+		return call(priority, handler);
+	}
+	
+	/**
+	 * Gets a connection with a priority and performs a function on it, returning the result.
+	 * If the pool's circuit breaker is open, this fails fast instead of waiting for a connection.
+	 * @param <R> the return type.
+	 * @param priority the connection acquisition priority.
+	 * @param handler the connection handler function.
+	 * @return the return object.
+	 * @throws DataAccessTimeoutException if a connection timeout occurs.
+	 * @throws DataAccessFailureException if any other exception occurs.
+	 * @since 1.4.0
+	 */
+	protected <R> R call(SQLPool.Priority priority, SQLConnectionFunction<R> handler)
 	{
 		try {
-			return pool.getConnectionAnd(acquireTimeout, handler);
+			if (partition != null)
+				return partition.getConnectionAnd(priority, acquireTimeout, handler);
+			return pool.getConnectionAnd(priority, acquireTimeout, handler);
 		} catch (TimeoutException e) {
 			throw new DataAccessTimeoutException("Fetching an available connection timed out!", e);
 		} catch (InterruptedException e) {
 			throw new DataAccessFailureException("Fetching an available connection was interrupted!", e);
 		} catch (SQLRuntimeException e) {
 			throw new DataAccessFailureException("A SQL exception occurred!", e);
+		} catch (SQLCircuitBreaker.OpenException e) {
+			throw new DataAccessFailureException("The database is unavailable!", e);
 		} catch (SQLException e) {
 			throw new DataAccessFailureException("A SQL exception occurred!", e);
 		} 
 	}
 
+	/**
+	 * Gets a connection without blocking the calling thread and performs a function on it on the provided executor.
+	 * The connection acquisition timeout applies to the wait for a connection.
+	 * If this DAO is attached to a pool partition, the wait for the connection happens on the executor.
+	 * @param <R> the return type.
+	 * @param handler the connection handler function.
+	 * @param executor the executor to call the handler on.
+	 * @return a future that completes with the return object, or completes exceptionally with a
+	 * 		{@link DataAccessTimeoutException} if a connection timeout occurs, or a {@link DataAccessFailureException} if a SQL exception occurs.
+	 * @since 1.4.0
+	 * @see SQLPool#getConnectionAndAsync(SQLPool.Priority, long, SQLConnectionFunction, Executor)
+	 */
+	protected <R> CompletableFuture<R> callAsync(SQLConnectionFunction<R> handler, Executor executor)
+	{
+		CompletableFuture<R> out = new CompletableFuture<>();
+		if (partition != null)
+		{
+			// Partitions wait for their limits on a thread.
+			executor.execute(() -> {
+				try {
+					out.complete(call(handler));
+				} catch (Throwable e) {
+					out.completeExceptionally(e);
+				}
+			});
+			return out;
+		}
+		
+		pool.getConnectionAndAsync(priority, acquireTimeout, handler, executor).whenComplete((result, e) -> {
+			if (e == null)
+				out.complete(result);
+			else if (e instanceof TimeoutException)
+				out.completeExceptionally(new DataAccessTimeoutException("Fetching an available connection timed out!", e));
+			else if (e instanceof SQLCircuitBreaker.OpenException)
+				out.completeExceptionally(new DataAccessFailureException("The database is unavailable!", e));
+			else if (e instanceof SQLRuntimeException || e instanceof SQLException)
+				out.completeExceptionally(new DataAccessFailureException("A SQL exception occurred!", e));
+			else
+				out.completeExceptionally(e);
+		});
+		return out;
+	}
+	
 	/**
 	 * Gets a connection and performs a function on it, returning the result.
 	 * @param <R> the return type.
@@ -9,6 +9,7 @@ package com.blackrook.sql;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.stream.Stream;
 
 import com.blackrook.sql.util.SQLRuntimeException;
 
@@ -23,6 +24,7 @@ public interface SQLCallable
 
 	/**
 	 * Performs a query and extracts the first row result into a single {@link SQLRow}.
+	 * Only the first row is fetched - the rest of the result is never read.
 	 * @param query the query statement to execute.
 	 * @param parameters list of parameters for parameterized queries.
 	 * @return the single result row returned, or null if no row returned.
@@ -119,6 +121,32 @@ public interface SQLCallable
 	 */
 	<T> T getRow(Class<T> type, String query, Object ... parameters);
 
+	/**
+	 * Performs a query that is expected to return at most one row and extracts it into a single {@link SQLRow}.
+	 * No more than two rows are fetched from the database: if a second row exists, this fails.
+	 * @param query the query statement to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the single result row returned, or null if no row returned.
+	 * @throws SQLRuntimeException if the query cannot be executed, the query causes an error, or the query returns more than one row.
+	 * @since 1.4.0
+	 */
+	SQLRow getSingleRow(String query, Object ... parameters);
+	
+	/**
+	 * Performs a query that is expected to return at most one row and creates an object from it, setting relevant fields.
+	 * No more than two rows are fetched from the database: if a second row exists, this fails.
+	 * Conversion of types is the same as {@link #getRow(Class, String, Object...)}.
+	 * @param <T> the returned data type.
+	 * @param type the class type to instantiate.
+	 * @param query the query to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return an instantiated object with the pertinent fields set, or null if no rows.
+	 * @throws SQLRuntimeException if the query cannot be executed, the query causes an error, or the query returns more than one row.
+	 * @throws ClassCastException if one object type cannot be converted to another.
+	 * @since 1.4.0
+	 */
+	<T> T getSingleRow(Class<T> type, String query, Object ... parameters);
+	
 	/**
 	 * Performs a query that returns rows and extracts them into a result.
 	 * @param query the query to execute.
@@ -128,6 +156,20 @@ public interface SQLCallable
 	 */
 	SQLResult getResult(String query, Object ... parameters);
 
+	/**
+	 * Performs a query that returns rows and extracts them into a columnar result.
+	 * Each column is held in a vector suited to its SQL type (numeric and boolean columns are not boxed,
+	 * and character columns are dictionary-encoded), and each row is a view of those vectors.
+	 * This uses far less memory than {@link #getResult(String, Object...)} for large results.
+	 * @param query the query to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the result of the query.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @see SQLResult#isColumnar()
+	 * @since 1.4.0
+	 */
+	SQLResult getColumnarResult(String query, Object ... parameters);
+	
 	/**
 	 * Performs a query and creates objects from the resultant rows, setting relevant fields on them.
 	 * <p>
@@ -217,6 +259,130 @@ public interface SQLCallable
 	 */
 	<T> T[] getResult(Class<T> type, String query, Object ... parameters);
 
+	/**
+	 * Performs a query and returns a cursor that reads the resultant rows one at a time
+	 * as it is iterated through, using the default fetch size.
+	 * The cursor keeps its statement open, and MUST be closed before this is closed or released.
+	 * @param query the query to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the open cursor.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @see SQLCursor#DEFAULT_FETCH_SIZE
+	 * @since 1.4.0
+	 */
+	default SQLCursor<SQLRow> getCursor(String query, Object ... parameters)
+	{
+		return getCursor(SQLCursor.DEFAULT_FETCH_SIZE, query, parameters);
+	}
+	
+	/**
+	 * Performs a query and returns a cursor that reads the resultant rows one at a time
+	 * as it is iterated through.
+	 * The cursor keeps its statement open, and MUST be closed before this is closed or released.
+	 * @param fetchSize the amount of rows to fetch from the database at a time (a hint to the driver).
+	 * @param query the query to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the open cursor.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @since 1.4.0
+	 */
+	SQLCursor<SQLRow> getCursor(int fetchSize, String query, Object ... parameters);
+	
+	/**
+	 * Performs a query and returns a cursor that creates objects from the resultant rows one at a time
+	 * as it is iterated through, using the default fetch size.
+	 * The cursor keeps its statement open, and MUST be closed before this is closed or released.
+	 * @param <T> the returned data type.
+	 * @param type the class type to instantiate.
+	 * @param query the query to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the open cursor.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @see #getResult(Class, String, Object...)
+	 * @see SQLCursor#DEFAULT_FETCH_SIZE
+	 * @since 1.4.0
+	 */
+	default <T> SQLCursor<T> getCursor(Class<T> type, String query, Object ... parameters)
+	{
+		return getCursor(type, SQLCursor.DEFAULT_FETCH_SIZE, query, parameters);
+	}
+	
+	/**
+	 * Performs a query and returns a cursor that creates objects from the resultant rows one at a time
+	 * as it is iterated through.
+	 * The cursor keeps its statement open, and MUST be closed before this is closed or released.
+	 * @param <T> the returned data type.
+	 * @param type the class type to instantiate.
+	 * @param fetchSize the amount of rows to fetch from the database at a time (a hint to the driver).
+	 * @param query the query to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the open cursor.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @see #getResult(Class, String, Object...)
+	 * @since 1.4.0
+	 */
+	<T> SQLCursor<T> getCursor(Class<T> type, int fetchSize, String query, Object ... parameters);
+	
+	/**
+	 * Performs a query and returns a lazily-populated stream of the resultant rows.
+	 * Rows are read from the open result only as the stream pulls them.
+	 * The stream keeps its statement open until it is closed, and MUST be closed before this is closed or released.
+	 * @param query the query to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the open stream.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @see SQLCursor#stream()
+	 * @since 1.4.0
+	 */
+	default Stream<SQLRow> streamResult(String query, Object ... parameters)
+	{
+		return getCursor(query, parameters).stream();
+	}
+	
+	/**
+	 * Performs a query and returns a lazily-populated stream of objects created from the resultant rows.
+	 * Rows are read from the open result and converted only as the stream pulls them.
+	 * The stream keeps its statement open until it is closed, and MUST be closed before this is closed or released.
+	 * @param <T> the returned data type.
+	 * @param type the class type to instantiate.
+	 * @param query the query to execute.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the open stream.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @see #getResult(Class, String, Object...)
+	 * @see SQLCursor#stream()
+	 * @since 1.4.0
+	 */
+	default <T> Stream<T> streamResult(Class<T> type, String query, Object ... parameters)
+	{
+		return getCursor(type, query, parameters).stream();
+	}
+	
+	/**
+	 * Prepares a statement that can be executed many times with different parameters.
+	 * The statement does not return generated keys from updates.
+	 * The returned handle MUST be closed before this is closed or released.
+	 * @param query the query to prepare.
+	 * @return a new statement handle.
+	 * @throws SQLRuntimeException if the statement cannot be prepared.
+	 * @since 1.4.0
+	 */
+	default SQLStatement prepare(String query)
+	{
+		return prepare(query, false);
+	}
+	
+	/**
+	 * Prepares a statement that can be executed many times with different parameters.
+	 * The returned handle MUST be closed before this is closed or released.
+	 * @param query the query to prepare.
+	 * @param generatedKeys if true, the statement returns generated keys from updates.
+	 * @return a new statement handle.
+	 * @throws SQLRuntimeException if the statement cannot be prepared.
+	 * @since 1.4.0
+	 */
+	SQLStatement prepare(String query, boolean generatedKeys);
+	
 	/**
 	 * Performs an update query (INSERT, DELETE, UPDATE, or other commands that do not return rows)
 	 * and extracts the data/affected data/generated data into a SQLResult.
@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * A circuit breaker for connecting to a database, so that callers fail fast while it is unavailable
+ * instead of each waiting out a connection or retrieval timeout.
+ * <p>The breaker starts closed, letting every attempt through. After a set amount of consecutive failed
+ * attempts (failed connections or validations), it opens, and attempts are rejected with an {@link OpenException}
+ * without contacting the database. Once the open time has passed, the next attempt is let through as a single trial
+ * (the breaker is half-open, and other attempts are still rejected): if the trial succeeds, the breaker closes again,
+ * and if it fails, the breaker opens for another open time.
+ * <p>A breaker is attached to a {@link SQLConnector} (see {@link SQLConnector#setCircuitBreaker(SQLCircuitBreaker)}),
+ * which guards its connections with it, and is used by every {@link SQLPool} made with that connector.
+ * It is safe to use from many threads at once.
+ * @author Matthew Tropiano
+ * @since 1.4.0
+ */
+public class SQLCircuitBreaker
+{
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(SQLCircuitBreaker.class.getName());
+	
+	/**
+	 * The states of a circuit breaker.
+	 */
+	public enum State
+	{
+		/** Attempts are let through. */
+		CLOSED,
+		/** Attempts are rejected until the open time has passed. */
+		OPEN,
+		/** A single trial attempt is in progress, and other attempts are rejected. */
+		HALF_OPEN;
+	}
+	
+	/** Amount of consecutive failures that open the breaker. */
+	private final int failureThreshold;
+	/** Time that the breaker stays open before a trial, in nanoseconds. */
+	private final long openNanos;
+	/** The current state. */
+	private final AtomicReference<Status> status;
+	/** Amount of consecutive failures while closed. */
+	private final AtomicInteger failureCount;
+	
+	/**
+	 * Creates a new, closed circuit breaker.
+	 * @param failureThreshold the amount of consecutive failures that open the breaker.
+	 * @param openMillis the time (in milliseconds) that the breaker stays open before letting a trial attempt through.
+	 * @throws IllegalArgumentException if failureThreshold is less than 1, or openMillis is less than 0.
+	 */
+	public SQLCircuitBreaker(int failureThreshold, long openMillis)
+	{
+		if (failureThreshold < 1)
+			throw new IllegalArgumentException("failureThreshold cannot be less than 1.");
+		if (openMillis < 0L)
+			throw new IllegalArgumentException("openMillis cannot be less than 0.");
+		this.failureThreshold = failureThreshold;
+		this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+		this.status = new AtomicReference<>(new Status(State.CLOSED, 0L));
+		this.failureCount = new AtomicInteger(0);
+	}
+	
+	/**
+	 * @return the amount of consecutive failures that open the breaker.
+	 */
+	public int getFailureThreshold()
+	{
+		return failureThreshold;
+	}
+	
+	/**
+	 * @return the time (in milliseconds) that the breaker stays open before letting a trial attempt through.
+	 */
+	public long getOpenMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(openNanos);
+	}
+	
+	/**
+	 * @return the current state of this breaker.
+	 */
+	public State getState()
+	{
+		return status.get().state;
+	}
+	
+	/**
+	 * @return the amount of consecutive failures since the last success while closed.
+	 */
+	public int getFailureCount()
+	{
+		return failureCount.get();
+	}
+	
+	/**
+	 * Checks if an attempt would be rejected right now, without starting a trial.
+	 * This is true while open (until the open time has passed) and while a trial is in progress.
+	 * @return true if attempts are rejected, false if not.
+	 */
+	public boolean isRejecting()
+	{
+		Status current = status.get();
+		switch (current.state)
+		{
+			case OPEN:
+				return System.nanoTime() - current.openedAt < openNanos;
+			case HALF_OPEN:
+				return true;
+			default:
+				return false;
+		}
+	}
+	
+	/**
+	 * Asks to make an attempt. If the breaker is open and the open time has passed,
+	 * the caller is let through as the trial attempt, and MUST report its outcome
+	 * with {@link #recordSuccess()} or {@link #recordFailure()}.
+	 * @throws OpenException if the attempt is rejected.
+	 */
+	public void acquirePermission() throws OpenException
+	{
+		while (true)
+		{
+			Status current = status.get();
+			switch (current.state)
+			{
+				case CLOSED:
+					return;
+				case OPEN:
+				{
+					if (System.nanoTime() - current.openedAt < openNanos)
+						throw createRejection(current);
+					if (status.compareAndSet(current, new Status(State.HALF_OPEN, current.openedAt)))
+						return;
+					break;
+				}
+				case HALF_OPEN:
+					throw createRejection(current);
+			}
+		}
+	}
+	
+	/**
+	 * Creates the exception for a rejected attempt, if an attempt would be rejected right now, without starting a trial.
+	 * @return the exception to throw, or null if attempts are not rejected.
+	 */
+	OpenException getRejection()
+	{
+		Status current = status.get();
+		if (current.state == State.HALF_OPEN || (current.state == State.OPEN && System.nanoTime() - current.openedAt < openNanos))
+			return createRejection(current);
+		return null;
+	}
+	
+	/**
+	 * Reports a successful attempt.
+	 * This resets the count of consecutive failures, and closes the breaker if this was the trial attempt.
+	 */
+	public void recordSuccess()
+	{
+		failureCount.set(0);
+		Status current = status.get();
+		if (current.state == State.HALF_OPEN && status.compareAndSet(current, new Status(State.CLOSED, 0L)))
+			LOGGER.info("Circuit breaker closed: the database is available again.");
+	}
+	
+	/**
+	 * Reports a failed attempt.
+	 * This opens the breaker if it was the trial attempt, or if it reaches the failure threshold.
+	 * @return true if this opened the breaker, false if not.
+	 */
+	public boolean recordFailure()
+	{
+		Status current = status.get();
+		switch (current.state)
+		{
+			case CLOSED:
+			{
+				if (failureCount.incrementAndGet() < failureThreshold)
+					return false;
+				if (!status.compareAndSet(current, new Status(State.OPEN, System.nanoTime())))
+					return false;
+				failureCount.set(0);
+				LOGGER.warning("Circuit breaker opened after " + failureThreshold + " consecutive failures.");
+				return true;
+			}
+			case HALF_OPEN:
+			{
+				if (!status.compareAndSet(current, new Status(State.OPEN, System.nanoTime())))
+					return false;
+				LOGGER.warning("Circuit breaker trial failed: opened again.");
+				return true;
+			}
+			default:
+				return false;
+		}
+	}
+	
+	// Creates the exception for a rejected attempt.
+	private OpenException createRejection(Status current)
+	{
+		if (current.state == State.HALF_OPEN)
+			return new OpenException("Circuit breaker is half-open: the database is unavailable (trial in progress).");
+		long remaining = Math.max(openNanos - (System.nanoTime() - current.openedAt), 0L);
+		return new OpenException("Circuit breaker is open: the database is unavailable (retrying in " + TimeUnit.NANOSECONDS.toMillis(remaining) + " ms).");
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "SQLCircuitBreaker[state=" + getState() + ", failures=" + getFailureCount() + "/" + failureThreshold + "]";
+	}
+	
+	/**
+	 * A state and when it was opened, changed together.
+	 */
+	private static final class Status
+	{
+		/** The state. */
+		private final State state;
+		/** When the breaker was opened, from {@link System#nanoTime()}. */
+		private final long openedAt;
+		
+		private Status(State state, long openedAt)
+		{
+			this.state = state;
+			this.openedAt = openedAt;
+		}
+	}
+	
+	/**
+	 * Thrown when an attempt is rejected by an open circuit breaker.
+	 */
+	public static class OpenException extends SQLTransientConnectionException
+	{
+		private static final long serialVersionUID = -3712084019725508114L;
+		
+		/**
+		 * Creates a new exception.
+		 * @param message the exception message.
+		 */
+		public OpenException(String message)
+		{
+			super(message);
+		}
+	}
+	
+}
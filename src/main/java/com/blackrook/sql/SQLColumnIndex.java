@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable lookup of column name to column index.
+ * Built once per query result and shared by all of the rows in it.
+ * Lookups are case-insensitive, and match the same names that {@link String#CASE_INSENSITIVE_ORDER} would.
+ * If more than one column has the same name, the last one wins.
+ * @author Matthew Tropiano
+ * @since 1.4.0
+ */
+final class SQLColumnIndex
+{
+	/** Column names, in result order. */
+	private final String[] columnNames;
+	/** Map of column name (as it was provided) to index. */
+	private final Map<String, Integer> exactMap;
+	/** Map of case-folded column name to index. */
+	private final Map<String, Integer> foldedMap;
+	
+	/**
+	 * Creates a new column index.
+	 * @param columnNames the names of the columns, in result order.
+	 */
+	SQLColumnIndex(String[] columnNames)
+	{
+		this.columnNames = columnNames;
+		this.exactMap = new HashMap<>(columnNames.length * 2, 1f);
+		this.foldedMap = new HashMap<>(columnNames.length * 2, 1f);
+		for (int i = 0; i < columnNames.length; i++)
+			foldedMap.put(fold(columnNames[i]), i);
+		// exact names resolve to whatever the case-insensitive lookup resolves to.
+		for (int i = 0; i < columnNames.length; i++)
+			exactMap.put(columnNames[i], foldedMap.get(fold(columnNames[i])));
+	}
+	
+	/**
+	 * @return the names of the columns, in result order.
+	 */
+	String[] getColumnNames()
+	{
+		return columnNames;
+	}
+	
+	/**
+	 * @return the amount of columns.
+	 */
+	int size()
+	{
+		return columnNames.length;
+	}
+	
+	/**
+	 * Gets the index of a column by name.
+	 * @param columnName the column name (case-insensitive).
+	 * @return the corresponding index (0-based), or -1 if no such column.
+	 */
+	int indexOf(String columnName)
+	{
+		if (columnName == null)
+			return -1;
+		Integer out;
+		if ((out = exactMap.get(columnName)) == null && (out = foldedMap.get(fold(columnName))) == null)
+			return -1;
+		return out;
+	}
+	
+	// Folds a name the same way that String.CASE_INSENSITIVE_ORDER compares characters.
+	private static String fold(String name)
+	{
+		char[] out = new char[name.length()];
+		for (int i = 0; i < out.length; i++)
+			out[i] = Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+		return new String(out);
+	}
+	
+}
@@ -0,0 +1,609 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single column of a columnar {@link SQLResult}.
+ * Values are stored in a type-specialized vector that is chosen from the column's SQL type,
+ * so that numeric and boolean values are not boxed while they are held in memory.
+ * <p>Vectors are filled in row order, one value per row, then trimmed once the result set is exhausted.
+ * @author Matthew Tropiano
+ * @since 1.4.0
+ */
+abstract class SQLColumnVector
+{
+	/** Initial capacity of each vector. */
+	private static final int INITIAL_CAPACITY = 16;
+	
+	/** Amount of rows in this vector. */
+	protected int size;
+	
+	/**
+	 * Creates a new vector suitable for holding the values of a column.
+	 * @param metaData the metadata of the result set that the column belongs to.
+	 * @param columnIndex the column index (1-based).
+	 * @return a new, empty vector.
+	 * @throws SQLException if the metadata cannot be read.
+	 */
+	static SQLColumnVector create(ResultSetMetaData metaData, int columnIndex) throws SQLException
+	{
+		switch (metaData.getColumnType(columnIndex))
+		{
+			case Types.BIGINT:
+				return new LongVector();
+			case Types.INTEGER:
+			case Types.SMALLINT:
+			case Types.TINYINT:
+				return new IntVector();
+			case Types.DOUBLE:
+			case Types.FLOAT:
+				return new DoubleVector(false);
+			case Types.REAL:
+				return new DoubleVector(true);
+			case Types.BOOLEAN:
+				return new BooleanVector();
+			case Types.BIT:
+				// BIT(n) with n > 1 is a bit string, not a boolean.
+				return metaData.getPrecision(columnIndex) <= 1 ? new BooleanVector() : new ObjectVector();
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.NCHAR:
+			case Types.NVARCHAR:
+				return new StringVector();
+			default:
+				return new ObjectVector();
+		}
+	}
+	
+	/**
+	 * @return the amount of rows in this vector.
+	 */
+	final int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Reads the value of this vector's column from the current row of a result set and appends it.
+	 * @param rs the open result set, set to the row to read.
+	 * @param columnIndex the column index (1-based).
+	 * @throws SQLException if the value cannot be read.
+	 */
+	abstract void add(ResultSet rs, int columnIndex) throws SQLException;
+	
+	/**
+	 * Releases any extra capacity held by this vector.
+	 * Called once after the last row is added.
+	 */
+	abstract void trim();
+	
+	/**
+	 * Gets a value as an object.
+	 * @param row the row index.
+	 * @return the value, boxed if necessary, or null if the value is null.
+	 */
+	abstract Object get(int row);
+	
+	/**
+	 * Checks if a value is null.
+	 * @param row the row index.
+	 * @return true if so, false if not.
+	 */
+	abstract boolean isNull(int row);
+	
+	/**
+	 * Checks if this vector holds numeric or boolean values that are read
+	 * without boxing via {@link #getBoolean(int)}, {@link #getInt(int)}, {@link #getLong(int)},
+	 * {@link #getFloat(int)}, and {@link #getDouble(int)}.
+	 * @return true if so, false if not.
+	 */
+	boolean isPrimitive()
+	{
+		return false;
+	}
+	
+	/**
+	 * Gets a value as a boolean.
+	 * Values are converted the same way that {@link SQLRow} converts boxed values.
+	 * @param row the row index.
+	 * @return the value, or false if null.
+	 */
+	boolean getBoolean(int row)
+	{
+		return SQLRow.getBoolean(get(row));
+	}
+	
+	/**
+	 * Gets a value as an integer.
+	 * Values are converted the same way that {@link SQLRow} converts boxed values.
+	 * @param row the row index.
+	 * @return the value, or 0 if null.
+	 */
+	int getInt(int row)
+	{
+		return SQLRow.getInt(get(row));
+	}
+	
+	/**
+	 * Gets a value as a long integer.
+	 * Values are converted the same way that {@link SQLRow} converts boxed values.
+	 * @param row the row index.
+	 * @return the value, or 0 if null.
+	 */
+	long getLong(int row)
+	{
+		return SQLRow.getLong(get(row));
+	}
+	
+	/**
+	 * Gets a value as a float.
+	 * Values are converted the same way that {@link SQLRow} converts boxed values.
+	 * @param row the row index.
+	 * @return the value, or 0 if null.
+	 */
+	float getFloat(int row)
+	{
+		return SQLRow.getFloat(get(row));
+	}
+	
+	/**
+	 * Gets a value as a double.
+	 * Values are converted the same way that {@link SQLRow} converts boxed values.
+	 * @param row the row index.
+	 * @return the value, or 0 if null.
+	 */
+	double getDouble(int row)
+	{
+		return SQLRow.getDouble(get(row));
+	}
+	
+	// Returns the next capacity for a full vector.
+	private static int nextCapacity(int capacity)
+	{
+		return Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1));
+	}
+	
+	/**
+	 * A vector of 64-bit integers.
+	 */
+	private static class LongVector extends SQLColumnVector
+	{
+		private long[] values = new long[0];
+		private BitSet nulls = new BitSet();
+		
+		@Override
+		void add(ResultSet rs, int columnIndex) throws SQLException
+		{
+			long value = rs.getLong(columnIndex);
+			if (rs.wasNull())
+				nulls.set(size);
+			if (size == values.length)
+				values = Arrays.copyOf(values, nextCapacity(values.length));
+			values[size++] = value;
+		}
+		
+		@Override
+		void trim()
+		{
+			values = Arrays.copyOf(values, size);
+		}
+		
+		@Override
+		Object get(int row)
+		{
+			return nulls.get(row) ? null : values[row];
+		}
+		
+		@Override
+		boolean isNull(int row)
+		{
+			return nulls.get(row);
+		}
+		
+		@Override
+		boolean isPrimitive()
+		{
+			return true;
+		}
+		
+		@Override
+		boolean getBoolean(int row)
+		{
+			return values[row] != 0L;
+		}
+		
+		@Override
+		int getInt(int row)
+		{
+			return (int)values[row];
+		}
+		
+		@Override
+		long getLong(int row)
+		{
+			return values[row];
+		}
+		
+		@Override
+		float getFloat(int row)
+		{
+			return (float)values[row];
+		}
+		
+		@Override
+		double getDouble(int row)
+		{
+			return (double)values[row];
+		}
+	}
+	
+	/**
+	 * A vector of 32-bit integers.
+	 * Some drivers report 64-bit values as {@link Types#INTEGER}, so if a value does not fit in
+	 * 32 bits, the whole vector is widened to 64 bits.
+	 */
+	private static class IntVector extends SQLColumnVector
+	{
+		private int[] values = new int[0];
+		private long[] wideValues = null;
+		private BitSet nulls = new BitSet();
+		
+		@Override
+		void add(ResultSet rs, int columnIndex) throws SQLException
+		{
+			long value = rs.getLong(columnIndex);
+			if (rs.wasNull())
+				nulls.set(size);
+			
+			if (wideValues == null && (int)value != value)
+			{
+				wideValues = new long[values.length];
+				for (int i = 0; i < size; i++)
+					wideValues[i] = values[i];
+				values = null;
+			}
+			
+			if (wideValues != null)
+			{
+				if (size == wideValues.length)
+					wideValues = Arrays.copyOf(wideValues, nextCapacity(wideValues.length));
+				wideValues[size++] = value;
+			}
+			else
+			{
+				if (size == values.length)
+					values = Arrays.copyOf(values, nextCapacity(values.length));
+				values[size++] = (int)value;
+			}
+		}
+		
+		@Override
+		void trim()
+		{
+			if (wideValues != null)
+				wideValues = Arrays.copyOf(wideValues, size);
+			else
+				values = Arrays.copyOf(values, size);
+		}
+		
+		@Override
+		Object get(int row)
+		{
+			if (nulls.get(row))
+				return null;
+			return wideValues != null ? (Object)wideValues[row] : (Object)values[row];
+		}
+		
+		@Override
+		boolean isNull(int row)
+		{
+			return nulls.get(row);
+		}
+		
+		@Override
+		boolean isPrimitive()
+		{
+			return true;
+		}
+		
+		@Override
+		boolean getBoolean(int row)
+		{
+			return getLong(row) != 0L;
+		}
+		
+		@Override
+		int getInt(int row)
+		{
+			return wideValues != null ? (int)wideValues[row] : values[row];
+		}
+		
+		@Override
+		long getLong(int row)
+		{
+			return wideValues != null ? wideValues[row] : values[row];
+		}
+		
+		@Override
+		float getFloat(int row)
+		{
+			return wideValues != null ? (float)wideValues[row] : (float)values[row];
+		}
+		
+		@Override
+		double getDouble(int row)
+		{
+			return wideValues != null ? (double)wideValues[row] : (double)values[row];
+		}
+	}
+	
+	/**
+	 * A vector of floating-point values.
+	 * Single-precision values are held as doubles, but boxed back into floats.
+	 */
+	private static class DoubleVector extends SQLColumnVector
+	{
+		private boolean single;
+		private double[] values = new double[0];
+		private BitSet nulls = new BitSet();
+		
+		private DoubleVector(boolean single)
+		{
+			this.single = single;
+		}
+		
+		@Override
+		void add(ResultSet rs, int columnIndex) throws SQLException
+		{
+			double value = single ? rs.getFloat(columnIndex) : rs.getDouble(columnIndex);
+			if (rs.wasNull())
+				nulls.set(size);
+			if (size == values.length)
+				values = Arrays.copyOf(values, nextCapacity(values.length));
+			values[size++] = value;
+		}
+		
+		@Override
+		void trim()
+		{
+			values = Arrays.copyOf(values, size);
+		}
+		
+		@Override
+		Object get(int row)
+		{
+			if (nulls.get(row))
+				return null;
+			return single ? (Object)(float)values[row] : (Object)values[row];
+		}
+		
+		@Override
+		boolean isNull(int row)
+		{
+			return nulls.get(row);
+		}
+		
+		@Override
+		boolean isPrimitive()
+		{
+			return true;
+		}
+		
+		@Override
+		boolean getBoolean(int row)
+		{
+			return values[row] != 0.0;
+		}
+		
+		@Override
+		int getInt(int row)
+		{
+			return (int)values[row];
+		}
+		
+		@Override
+		long getLong(int row)
+		{
+			return (long)values[row];
+		}
+		
+		@Override
+		float getFloat(int row)
+		{
+			return (float)values[row];
+		}
+		
+		@Override
+		double getDouble(int row)
+		{
+			return values[row];
+		}
+	}
+	
+	/**
+	 * A vector of booleans, stored as a bit set.
+	 */
+	private static class BooleanVector extends SQLColumnVector
+	{
+		private BitSet values = new BitSet();
+		private BitSet nulls = new BitSet();
+		
+		@Override
+		void add(ResultSet rs, int columnIndex) throws SQLException
+		{
+			boolean value = rs.getBoolean(columnIndex);
+			if (rs.wasNull())
+				nulls.set(size);
+			else if (value)
+				values.set(size);
+			size++;
+		}
+		
+		@Override
+		void trim()
+		{
+			// Nothing to trim.
+		}
+		
+		@Override
+		Object get(int row)
+		{
+			return nulls.get(row) ? null : Boolean.valueOf(values.get(row));
+		}
+		
+		@Override
+		boolean isNull(int row)
+		{
+			return nulls.get(row);
+		}
+		
+		@Override
+		boolean isPrimitive()
+		{
+			return true;
+		}
+		
+		@Override
+		boolean getBoolean(int row)
+		{
+			return values.get(row);
+		}
+		
+		@Override
+		int getInt(int row)
+		{
+			return values.get(row) ? 1 : 0;
+		}
+		
+		@Override
+		long getLong(int row)
+		{
+			return values.get(row) ? 1L : 0L;
+		}
+		
+		@Override
+		float getFloat(int row)
+		{
+			return values.get(row) ? 1f : 0f;
+		}
+		
+		@Override
+		double getDouble(int row)
+		{
+			return values.get(row) ? 1.0 : 0.0;
+		}
+	}
+	
+	/**
+	 * A vector of dictionary-encoded strings.
+	 * Each distinct string is held once, and each row holds an index into the dictionary (-1 for null).
+	 */
+	private static class StringVector extends SQLColumnVector
+	{
+		private int[] codes = new int[0];
+		private List<String> dictionary = new ArrayList<>();
+		private Map<String, Integer> dictionaryIndex = new HashMap<>();
+		private String[] dictionaryValues = null;
+		
+		@Override
+		void add(ResultSet rs, int columnIndex) throws SQLException
+		{
+			String value = rs.getString(columnIndex);
+			int code = -1;
+			if (value != null)
+			{
+				Integer found;
+				if ((found = dictionaryIndex.get(value)) == null)
+				{
+					code = dictionary.size();
+					dictionary.add(value);
+					dictionaryIndex.put(value, code);
+				}
+				else
+				{
+					code = found;
+				}
+			}
+			if (size == codes.length)
+				codes = Arrays.copyOf(codes, nextCapacity(codes.length));
+			codes[size++] = code;
+		}
+		
+		@Override
+		void trim()
+		{
+			codes = Arrays.copyOf(codes, size);
+			dictionaryValues = dictionary.toArray(new String[dictionary.size()]);
+			dictionary = null;
+			dictionaryIndex = null;
+		}
+		
+		@Override
+		Object get(int row)
+		{
+			int code = codes[row];
+			if (code < 0)
+				return null;
+			return dictionaryValues != null ? dictionaryValues[code] : dictionary.get(code);
+		}
+		
+		@Override
+		boolean isNull(int row)
+		{
+			return codes[row] < 0;
+		}
+	}
+	
+	/**
+	 * A vector of any other object type.
+	 * Blobs and Clobs are read out into byte arrays and Strings as they are added.
+	 */
+	private static class ObjectVector extends SQLColumnVector
+	{
+		private Object[] values = new Object[0];
+		
+		@Override
+		void add(ResultSet rs, int columnIndex) throws SQLException
+		{
+			Object value = SQLRow.readValue(rs, columnIndex);
+			if (size == values.length)
+				values = Arrays.copyOf(values, nextCapacity(values.length));
+			values[size++] = value;
+		}
+		
+		@Override
+		void trim()
+		{
+			values = Arrays.copyOf(values, size);
+		}
+		
+		@Override
+		Object get(int row)
+		{
+			return values[row];
+		}
+		
+		@Override
+		boolean isNull(int row)
+		{
+			return values[row] == null;
+		}
+	}
+	
+}
@@ -12,6 +12,7 @@ import java.sql.SQLException;
 import java.sql.Savepoint;
 import java.util.Collection;
 
+import com.blackrook.sql.util.SQLRuntimeException;
 import com.blackrook.sql.util.SQLTransactionConsumer;
 import com.blackrook.sql.util.SQLTransactionFunction;
 
@@ -81,10 +82,21 @@ public class SQLConnection implements SQLCallable, AutoCloseable
 	Connection connection;
 	/** The current transaction on this connection. */
 	private Transaction transaction;
+	/** The prepared statement cache. */
+	private SQLStatementCache statementCache;
+	/** The pool entry for this connection, if pooled. */
+	private SQLPool.Entry poolEntry;
 		
 	SQLConnection(Connection connection)
+	{
+		this(connection, 0);
+	}
+	
+	SQLConnection(Connection connection, int statementCacheSize)
 	{
 		this.connection = connection;
+		this.statementCache = new SQLStatementCache(connection, statementCacheSize);
+		this.poolEntry = null;
 	}
 
 	/**
@@ -162,6 +174,23 @@ public class SQLConnection implements SQLCallable, AutoCloseable
 		}
 	}
 	
+	/**
+	 * @return the pool entry for this connection, or null if not pooled (called by SQLPool).
+	 */
+	SQLPool.Entry getPoolEntry()
+	{
+		return poolEntry;
+	}
+	
+	/**
+	 * Sets the pool entry for this connection (called by SQLPool).
+	 * @param poolEntry the entry.
+	 */
+	void setPoolEntry(SQLPool.Entry poolEntry)
+	{
+		this.poolEntry = poolEntry;
+	}
+	
 	/**
 	 * @return true if this connection is in a transaction, false if not.
 	 */
@@ -170,60 +199,113 @@ public class SQLConnection implements SQLCallable, AutoCloseable
 		return transaction != null;
 	}
 	
+	/**
+	 * Gets the cache of prepared statements used by this connection's query methods.
+	 * Its counters can be used for sizing it (see {@link SQLConnector#setStatementCacheSize(int)}).
+	 * @return the statement cache.
+	 * @since 1.4.0
+	 */
+	public SQLStatementCache getStatementCache()
+	{
+		return statementCache;
+	}
+	
 	@Override
 	public SQLRow getRow(String query, Object ... parameters)
 	{
 		verifyNotInTransaction();
-		return SQL.getRow(connection, query, parameters);
+		return callCached(query, false, (statement) -> SQL.callRow(statement, parameters));
 	}
 
 	@Override
 	public <T> T getRow(Class<T> type, String query, Object ... parameters)
 	{
 		verifyNotInTransaction();
-		return SQL.getRow(connection, type, query, parameters);
+		return callCached(query, false, (statement) -> SQL.callRow(type, statement, parameters));
 	}
 
+	@Override
+	public SQLRow getSingleRow(String query, Object ... parameters)
+	{
+		verifyNotInTransaction();
+		return callCached(query, false, (statement) -> SQL.callSingleRow(statement, parameters));
+	}
+	
+	@Override
+	public <T> T getSingleRow(Class<T> type, String query, Object ... parameters)
+	{
+		verifyNotInTransaction();
+		return callCached(query, false, (statement) -> SQL.callSingleRow(type, statement, parameters));
+	}
+	
 	@Override
 	public SQLResult getResult(String query, Object ... parameters)
 	{
 		verifyNotInTransaction();
-		return SQL.getResult(connection, query, parameters);
+		return callCached(query, false, (statement) -> SQL.callStatement(statement, false, parameters));
 	}
 
+	@Override
+	public SQLResult getColumnarResult(String query, Object ... parameters)
+	{
+		verifyNotInTransaction();
+		return callCached(query, false, (statement) -> SQL.callColumnarStatement(statement, parameters));
+	}
+	
 	@Override
 	public <T> T[] getResult(Class<T> type, String query, Object ... parameters)
 	{
 		verifyNotInTransaction();
-		return SQL.getResult(connection, type, query, parameters);
+		return callCached(query, false, (statement) -> SQL.callStatement(type, statement, parameters));
 	}
 
+	@Override
+	public SQLCursor<SQLRow> getCursor(int fetchSize, String query, Object ... parameters)
+	{
+		verifyNotInTransaction();
+		return SQL.getCursor(connection, fetchSize, query, parameters);
+	}
+	
+	@Override
+	public <T> SQLCursor<T> getCursor(Class<T> type, int fetchSize, String query, Object ... parameters)
+	{
+		verifyNotInTransaction();
+		return SQL.getCursor(connection, type, fetchSize, query, parameters);
+	}
+	
+	@Override
+	public SQLStatement prepare(String query, boolean generatedKeys)
+	{
+		verifyNotInTransaction();
+		return SQL.prepare(connection, query, generatedKeys);
+	}
+	
 	@Override
 	public SQLResult getUpdateResult(String query, Object ... parameters)
 	{
 		verifyNotInTransaction();
-		return SQL.getUpdateResult(connection, query, parameters);
+		return callCached(query, true, (statement) -> SQL.callStatement(statement, true, parameters));
 	}
 
 	@Override
 	public int[] getUpdateBatch(String query, int granularity, Collection<Object[]> parameterList) 
 	{
 		verifyNotInTransaction();
-		return SQL.getUpdateBatch(connection, query, granularity, parameterList);
+		return callCached(query, true, (statement) -> SQL.callBatch(statement, granularity, parameterList));
 	}
 
 	@Override
 	public long[] getUpdateLargeBatch(String query, int granularity, Collection<Object[]> parameterList) 
 	{
 		verifyNotInTransaction();
-		return SQL.getUpdateLargeBatch(connection, query, granularity, parameterList);
+		return callCached(query, true, (statement) -> SQL.callLargeBatch(statement, granularity, parameterList));
 	}
 
 	@Override
 	public SQLResult[] getUpdateBatchResult(String query, Collection<Object[]> parameterList) 
 	{
 		verifyNotInTransaction();
-		return SQL.getUpdateBatchResult(connection, query, parameterList);
+		return callCached(query, true, (statement) -> SQL.callBatchResult(statement, parameterList));
 	}
 
 	/**
@@ -238,6 +320,7 @@ public class SQLConnection implements SQLCallable, AutoCloseable
 	/**
 	 * Closes this connection.
 	 * If a transaction is active, and the transaction is not finished, this aborts it.
+	 * All cached statements are closed.
 	 * @see Transaction#abort()
 	 */
 	@Override
@@ -245,6 +328,7 @@ public class SQLConnection implements SQLCallable, AutoCloseable
 	{
 		try {
 			endTransaction();
+			statementCache.clear();
 			if (!isClosed())
 				connection.close();
 		} catch (SQLException e) {
@@ -252,6 +336,16 @@ public class SQLConnection implements SQLCallable, AutoCloseable
 		}
 	}
 
+	// Calls a function with a (possibly cached) prepared statement.
+	private <R> R callCached(String query, boolean generatedKeys, SQLStatementCache.StatementFunction<R> function)
+	{
+		try {
+			return statementCache.call(query, generatedKeys, function);
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		}
+	}
+	
 	private void verifyNotInTransaction()
 	{
 		if (inTransaction())
@@ -297,56 +391,98 @@ public class SQLConnection implements SQLCallable, AutoCloseable
 		public SQLRow getRow(String query, Object... parameters)
 		{
 			verifyUnfinished();
-			return SQL.getRow(connection, query, parameters);
+			return callCached(query, false, (statement) -> SQL.callRow(statement, parameters));
 		}
 
 		@Override
 		public <T> T getRow(Class<T> type, String query, Object... parameters)
 		{
 			verifyUnfinished();
-			return SQL.getRow(connection, type, query, parameters);
+			return callCached(query, false, (statement) -> SQL.callRow(type, statement, parameters));
 		}
 
+		@Override
+		public SQLRow getSingleRow(String query, Object... parameters)
+		{
+			verifyUnfinished();
+			return callCached(query, false, (statement) -> SQL.callSingleRow(statement, parameters));
+		}
+		
+		@Override
+		public <T> T getSingleRow(Class<T> type, String query, Object... parameters)
+		{
+			verifyUnfinished();
+			return callCached(query, false, (statement) -> SQL.callSingleRow(type, statement, parameters));
+		}
+		
 		@Override
 		public SQLResult getResult(String query, Object... parameters)
 		{
 			verifyUnfinished();
-			return SQL.getResult(connection, query, parameters);
+			return callCached(query, false, (statement) -> SQL.callStatement(statement, false, parameters));
 		}
 
+		@Override
+		public SQLResult getColumnarResult(String query, Object... parameters)
+		{
+			verifyUnfinished();
+			return callCached(query, false, (statement) -> SQL.callColumnarStatement(statement, parameters));
+		}
+		
 		@Override
 		public <T> T[] getResult(Class<T> type, String query, Object... parameters)
 		{
 			verifyUnfinished();
-			return SQL.getResult(connection, type, query, parameters);
+			return callCached(query, false, (statement) -> SQL.callStatement(type, statement, parameters));
 		}
 
+		@Override
+		public SQLCursor<SQLRow> getCursor(int fetchSize, String query, Object... parameters)
+		{
+			verifyUnfinished();
+			return SQL.getCursor(connection, fetchSize, query, parameters);
+		}
+		
+		@Override
+		public <T> SQLCursor<T> getCursor(Class<T> type, int fetchSize, String query, Object... parameters)
+		{
+			verifyUnfinished();
+			return SQL.getCursor(connection, type, fetchSize, query, parameters);
+		}
+		
+		@Override
+		public SQLStatement prepare(String query, boolean generatedKeys)
+		{
+			verifyUnfinished();
+			return SQL.prepare(connection, query, generatedKeys);
+		}
+		
 		@Override
 		public SQLResult getUpdateResult(String query, Object... parameters)
 		{
 			verifyUnfinished();
-			return SQL.getUpdateResult(connection, query, parameters);
+			return callCached(query, true, (statement) -> SQL.callStatement(statement, true, parameters));
 		}
 
 		@Override
 		public int[] getUpdateBatch(String query, int granularity, Collection<Object[]> parameterList) 
 		{
 			verifyUnfinished();
-			return SQL.getUpdateBatch(connection, query, granularity, parameterList);
+			return callCached(query, true, (statement) -> SQL.callBatch(statement, granularity, parameterList));
 		}
 
 		@Override
 		public long[] getUpdateLargeBatch(String query, int granularity, Collection<Object[]> parameterList) 
 		{
 			verifyUnfinished();
-			return SQL.getUpdateLargeBatch(connection, query, granularity, parameterList);
+			return callCached(query, true, (statement) -> SQL.callLargeBatch(statement, granularity, parameterList));
 		}
 
 		@Override
 		public SQLResult[] getUpdateBatchResult(String query, Collection<Object[]> parameterList)
 		{
 			verifyUnfinished();
-			return SQL.getUpdateBatchResult(connection, query, parameterList);
+			return callCached(query, true, (statement) -> SQL.callBatchResult(statement, parameterList));
 		}
 
 		/**
@@ -29,6 +29,10 @@ public class SQLConnector
 	private String userName;
 	/** Password. */
 	private String password;
+	/** Prepared statement cache size per connection. */
+	private int statementCacheSize;
+	/** Circuit breaker for new connections (can be null). */
+	private SQLCircuitBreaker circuitBreaker;
 	
 	/**
 	 * Constructs a new database connector.
@@ -42,6 +46,8 @@ public class SQLConnector
 		this.info = null;
 		this.userName = null;
 		this.password = null;
+		this.statementCacheSize = 0;
+		this.circuitBreaker = null;
 		
 		try {
 			Class.forName(className);
@@ -88,20 +94,88 @@ public class SQLConnector
 		return jdbcURL;
 	}
 
+	/**
+	 * Sets the maximum amount of prepared statements that each connection made by this connector keeps open for reuse.
+	 * Statements are cached by query text, and the least-recently-used ones are closed when the cache is full.
+	 * This only affects connections created after this is set.
+	 * @param statementCacheSize the maximum amount of cached statements per connection. If 0 or less, statements are not cached (the default).
+	 * @see SQLConnection#getStatementCache()
+	 * @since 1.4.0
+	 */
+	public void setStatementCacheSize(int statementCacheSize)
+	{
+		this.statementCacheSize = Math.max(statementCacheSize, 0);
+	}
+	
+	/**
+	 * @return the maximum amount of prepared statements that each connection made by this connector keeps open for reuse.
+	 * @since 1.4.0
+	 */
+	public int getStatementCacheSize()
+	{
+		return statementCacheSize;
+	}
+	
+	/**
+	 * Sets the circuit breaker that guards new connections made by this connector.
+	 * While the breaker is open, {@link #getConnection()} fails fast with a {@link SQLCircuitBreaker.OpenException}
+	 * instead of contacting the database, and every {@link SQLPool} made with this connector fails retrievals 
+	 * that would have to wait for a connection. Pools also report failed connection validations to it.
+	 * This only affects pools created after this is set.
+	 * @param circuitBreaker the circuit breaker, or null for none (the default).
+	 * @since 1.4.0
+	 */
+	public void setCircuitBreaker(SQLCircuitBreaker circuitBreaker)
+	{
+		this.circuitBreaker = circuitBreaker;
+	}
+	
+	/**
+	 * @return the circuit breaker that guards new connections made by this connector, or null if none.
+	 * @since 1.4.0
+	 */
+	public SQLCircuitBreaker getCircuitBreaker()
+	{
+		return circuitBreaker;
+	}
+	
 	/**
 	 * Returns a new, opened JDBC Connection using the credentials stored with this connector.
 	 * @return a {@link DriverManager}-created connection.
 	 * @throws SQLException	if a connection can't be procured.
+	 * @throws SQLCircuitBreaker.OpenException if this connector's circuit breaker is open.
 	 * @see DriverManager#getConnection(String)
+	 * @see #setCircuitBreaker(SQLCircuitBreaker)
 	 */
 	public SQLConnection getConnection() throws SQLException
+	{
+		SQLCircuitBreaker breaker = circuitBreaker;
+		if (breaker == null)
+			return openConnection();
+		
+		breaker.acquirePermission();
+		boolean success = false;
+		try {
+			SQLConnection out = openConnection();
+			success = true;
+			return out;
+		} finally {
+			if (success)
+				breaker.recordSuccess();
+			else
+				breaker.recordFailure();
+		}
+	}
+	
+	// Opens a new connection.
+	private SQLConnection openConnection() throws SQLException
 	{
 		if (userName != null)
-			return new SQLConnection(DriverManager.getConnection(getJDBCURL(), userName, password));
+			return new SQLConnection(DriverManager.getConnection(getJDBCURL(), userName, password), statementCacheSize);
 		else if (info != null)
-			return new SQLConnection(DriverManager.getConnection(getJDBCURL(), info));
+			return new SQLConnection(DriverManager.getConnection(getJDBCURL(), info), statementCacheSize);
 		else
-			return new SQLConnection(DriverManager.getConnection(getJDBCURL()));
+			return new SQLConnection(DriverManager.getConnection(getJDBCURL()), statementCacheSize);
 	}
 
 	/**
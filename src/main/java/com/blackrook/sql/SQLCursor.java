@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.blackrook.sql.util.SQLRuntimeException;
+
+/**
+ * A forward-only cursor over an open query result.
+ * Rows are read from the database and converted one at a time as they are iterated through,
+ * so that a result of any size can be processed without holding all of it in memory.
+ * <p>The cursor keeps its statement (and the connection that made it) busy until it is closed,
+ * so it should always be used with an auto-closing mechanism, and closed before the connection is
+ * released or closed. The cursor closes itself once the last row is read, or if reading a row fails.
+ * <p>A cursor can only be iterated through once.
+ * @author Matthew Tropiano
+ * @param <T> the type of object returned per row.
+ * @since 1.4.0
+ */
+public class SQLCursor<T> implements Iterable<T>, AutoCloseable
+{
+	/**
+	 * Default fetch size for cursors.
+	 * Note that some drivers only honor fetch sizes under certain conditions (for example, outside of auto-commit mode).
+	 */
+	public static final int DEFAULT_FETCH_SIZE = 256;
+	
+	/** The open statement. */
+	private PreparedStatement statement;
+	/** The open result set. */
+	private ResultSet resultSet;
+	/** The row converter. */
+	private RowReader<T> reader;
+	/** Has an iterator been created? */
+	private boolean iterated;
+	/** Is this closed? */
+	private boolean closed;
+	
+	/**
+	 * Creates a new cursor.
+	 * @param statement the statement that the result set came from (closed with this cursor).
+	 * @param resultSet the open result set, positioned before the first row.
+	 * @param reader the function to use for converting each row.
+	 */
+	SQLCursor(PreparedStatement statement, ResultSet resultSet, RowReader<T> reader)
+	{
+		this.statement = statement;
+		this.resultSet = resultSet;
+		this.reader = reader;
+		this.iterated = false;
+		this.closed = false;
+	}
+	
+	/**
+	 * @return true if this cursor is closed, false if not.
+	 */
+	public boolean isClosed()
+	{
+		return closed;
+	}
+	
+	/**
+	 * Returns the iterator for this cursor's rows.
+	 * @throws IllegalStateException if this was already called on this cursor.
+	 */
+	@Override
+	public Iterator<T> iterator()
+	{
+		if (iterated)
+			throw new IllegalStateException("This cursor was already iterated through.");
+		iterated = true;
+		return new CursorIterator();
+	}
+	
+	/**
+	 * Returns a sequential stream of this cursor's rows.
+	 * Rows are read only as the stream pulls them, so short-circuiting operations
+	 * (like {@link Stream#findFirst()} or {@link Stream#limit(long)}) stop reading the result early.
+	 * Closing the stream closes this cursor.
+	 * <p>This counts as iterating through this cursor, and can only be called once.
+	 * @return a new stream.
+	 * @throws IllegalStateException if this cursor was already iterated through.
+	 * @since 1.4.0
+	 */
+	public Stream<T> stream()
+	{
+		Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(this::close);
+	}
+	
+	/**
+	 * Closes the result set and statement under this cursor.
+	 * Does nothing if already closed.
+	 */
+	@Override
+	public void close()
+	{
+		if (closed)
+			return;
+		closed = true;
+		try {
+			resultSet.close();
+		} catch (SQLException e) {
+			// Do nothing.
+		}
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			// Do nothing.
+		}
+	}
+	
+	/**
+	 * A function that converts the current row of a result set.
+	 * @param <T> the returned type.
+	 */
+	@FunctionalInterface
+	interface RowReader<T>
+	{
+		/**
+		 * Reads the current row.
+		 * @param resultSet the result set, positioned at the row to read.
+		 * @return the converted row.
+		 * @throws SQLException if a SQL exception occurs.
+		 */
+		T read(ResultSet resultSet) throws SQLException;
+	}
+	
+	/**
+	 * The iterator returned to iterate through this cursor.
+	 */
+	private class CursorIterator implements Iterator<T>
+	{
+		/** Is the result set positioned on an unread row? */
+		private boolean ready;
+		
+		private CursorIterator()
+		{
+			this.ready = false;
+		}
+		
+		@Override
+		public boolean hasNext()
+		{
+			if (ready)
+				return true;
+			if (closed)
+				return false;
+			
+			try {
+				if (resultSet.next())
+					ready = true;
+				else
+					close();
+			} catch (SQLException e) {
+				close();
+				throw new SQLRuntimeException(e);
+			}
+			return ready;
+		}
+		
+		@Override
+		public T next()
+		{
+			if (!hasNext())
+				throw new NoSuchElementException();
+			ready = false;
+			try {
+				return reader.read(resultSet);
+			} catch (SQLException e) {
+				close();
+				throw new SQLRuntimeException(e);
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binders for statement parameters, each calling the type-specific setter on a {@link PreparedStatement}
+ * for one parameter class, so that the driver does not need to inspect each value passed to {@link PreparedStatement#setObject(int, Object)}.
+ * Values of classes without a specific binder are still passed to <code>setObject</code>.
+ * <p>For batches, a plan of binders is made from the first set of parameters and reused for the rest,
+ * falling back to a lookup for any parameter whose class differs from the plan's.
+ * @author Matthew Tropiano
+ * @since 1.4.0
+ */
+enum SQLParameterBinder
+{
+	LONG(Long.class, Types.BIGINT)
+	{
+		@Override
+		void bind(PreparedStatement statement, int index, Object value) throws SQLException
+		{
+			statement.setLong(index, (Long)value);
+		}
+	},
+	
+	INTEGER(Integer.class, Types.INTEGER)
+	{
+		@Override
+		void bind(PreparedStatement statement, int index, Object value) throws SQLException
+		{
+			statement.setInt(index, (Integer)value);
+		}
+	},
+	
+	SHORT(Short.class, Types.SMALLINT)
+	{
+		@Override
+		void bind(PreparedStatement statement, int index, Object value) throws SQLException
+		{
+			statement.setShort(index, (Short)value);
+		}
+	},
+	
+	BYTE(Byte.class, Types.TINYINT)
+	{
+		@Override
+		void bind(PreparedStatement statement, int index, Object value) throws SQLException
+		{
+			statement.setByte(index, (Byte)value);
+		}
+	},
+	
+	DOUBLE(Double.class, Types.DOUBLE)
+	{
+		@Override
+		void bind(PreparedStatement statement, int index, Object value) throws SQLException
+		{
+			statement.setDouble(index, (Double)value);
+		}
+	},
+	
+	FLOAT(Float.class, Types.REAL)
+	{
+		@Override
+		void bind(PreparedStatement statement, int index, Object value) throws SQLException
+		{
+			statement.setFloat(index, (Float)value);
+		}
+	},
+	
+	BOOLEAN(Boolean.class, Types.BOOLEAN)
+	{
+		@Override
+		void bind(PreparedStatement statement, int index, Object value) throws SQLException
+		{
+			statement.setBoolean(index, (Boolean)value);
+		}
+	},
+	
+	STRING(String.class, Types.VARCHAR)
+	{
+		@Override
+		void bind(PreparedStatement statement, int index, Object value) throws SQLException
+		{
+			statement.setString(index, (String)value);
+		}
+	},
+	
+	BIG_DECIMAL(BigDecimal.class, Types.DECIMAL)
+	{
+		@Override
+		void bind(PreparedStatement statement, int index, Object value) throws SQLException
+		{
+			statement.setBigDecimal(index, (BigDecimal)value);
+		}
+	},
+	
+	TIMESTAMP(Timestamp.class, Types.TIMESTAMP)
+	{
+		@Override
+		void bind(PreparedStatement statement, int index, Object value) throws SQLException
+		{
+			statement.setTimestamp(index, (Timestamp)value);
+		}
+	},
+	
+	DATE(Date.class, Types.DATE)
+	{
+		@Override
+		void bind(PreparedStatement statement, int index, Object value) throws SQLException
+		{
+			statement.setDate(index, (Date)value);
+		}
+	},
+	
+	TIME(Time.class, Types.TIME)
+	{
+		@Override
+		void bind(PreparedStatement statement, int index, Object value) throws SQLException
+		{
+			statement.setTime(index, (Time)value);
+		}
+	},
+	
+	BYTES(byte[].class, Types.VARBINARY)
+	{
+		@Override
+		void bind(PreparedStatement statement, int index, Object value) throws SQLException
+		{
+			statement.setBytes(index, (byte[])value);
+		}
+	},
+	
+	/** Any other class. Nulls are passed to setObject, as their SQL type is not known. */
+	OBJECT(null, Types.NULL)
+	{
+		@Override
+		void bind(PreparedStatement statement, int index, Object value) throws SQLException
+		{
+			statement.setObject(index, value);
+		}
+	},
+	;
+	
+	/** Map of parameter class to binder. */
+	private static final Map<Class<?>, SQLParameterBinder> CLASS_MAP = new HashMap<>();
+	static
+	{
+		for (SQLParameterBinder binder : values())
+			if (binder.type != null)
+				CLASS_MAP.put(binder.type, binder);
+	}
+	
+	/** The bound class (null for any). */
+	private final Class<?> type;
+	/** The SQL type to use for nulls. */
+	private final int sqlType;
+	
+	private SQLParameterBinder(Class<?> type, int sqlType)
+	{
+		this.type = type;
+		this.sqlType = sqlType;
+	}
+	
+	/**
+	 * Binds a non-null value.
+	 * @param statement the statement.
+	 * @param index the parameter index (1-based).
+	 * @param value the value.
+	 * @throws SQLException if a SQL exception occurs.
+	 */
+	abstract void bind(PreparedStatement statement, int index, Object value) throws SQLException;
+	
+	/**
+	 * Gets the binder for a parameter class.
+	 * @param type the class.
+	 * @return the binder to use.
+	 */
+	static SQLParameterBinder get(Class<?> type)
+	{
+		SQLParameterBinder out;
+		return (out = CLASS_MAP.get(type)) != null ? out : OBJECT;
+	}
+	
+	/**
+	 * Binds a set of parameters to a statement.
+	 * @param statement the statement.
+	 * @param parameters the parameters.
+	 * @throws SQLException if a SQL exception occurs.
+	 */
+	static void bind(PreparedStatement statement, Object[] parameters) throws SQLException
+	{
+		for (int i = 0; i < parameters.length; i++)
+		{
+			Object value = parameters[i];
+			if (value == null)
+				statement.setObject(i + 1, null);
+			else
+				get(value.getClass()).bind(statement, i + 1, value);
+		}
+	}
+	
+	/**
+	 * Makes a binding plan from a set of parameters.
+	 * Null parameters get a null binder (unknown type).
+	 * @param parameters the parameters.
+	 * @return the plan.
+	 */
+	static SQLParameterBinder[] plan(Object[] parameters)
+	{
+		SQLParameterBinder[] out = new SQLParameterBinder[parameters.length];
+		for (int i = 0; i < parameters.length; i++)
+			out[i] = parameters[i] != null ? get(parameters[i].getClass()) : null;
+		return out;
+	}
+	
+	/**
+	 * Binds a set of parameters to a statement using a plan.
+	 * A parameter not covered by the plan, or of a different class than planned, is looked up as usual.
+	 * A null parameter is bound with {@link PreparedStatement#setNull(int, int)} if the plan knows its SQL type.
+	 * @param statement the statement.
+	 * @param plan the plan from {@link #plan(Object[])}.
+	 * @param parameters the parameters.
+	 * @throws SQLException if a SQL exception occurs.
+	 */
+	static void bind(PreparedStatement statement, SQLParameterBinder[] plan, Object[] parameters) throws SQLException
+	{
+		for (int i = 0; i < parameters.length; i++)
+		{
+			Object value = parameters[i];
+			SQLParameterBinder binder = i < plan.length ? plan[i] : null;
+			if (value == null)
+			{
+				if (binder != null && binder.type != null)
+					statement.setNull(i + 1, binder.sqlType);
+				else
+					statement.setObject(i + 1, null);
+			}
+			else if (binder != null && (binder.type == null || binder.type == value.getClass()))
+				binder.bind(statement, i + 1, value);
+			else
+				get(value.getClass()).bind(statement, i + 1, value);
+		}
+	}
+	
+}
@@ -7,47 +7,306 @@
  ******************************************************************************/
 package com.blackrook.sql;
 
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.lang.management.ManagementFactory;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.blackrook.sql.util.SQLConnectionConsumer;
 import com.blackrook.sql.util.SQLConnectionFunction;
 
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
 /**
  * This is a database connection pool class for a bunch of shared, managed connections.
  * Meant to be accessed by many threads in an enterprise setting.
  * If a connection is requested that is not available, the requesting thread will wait
  * until a connection is found or until it times out. 
+ * <p>Waiting threads are served in the order that they started waiting, and a released connection
+ * is handed directly to the longest-waiting thread, waking only that thread.
+ * No locks are taken to retrieve or release a connection, and waiting threads are parked rather than blocked on a monitor,
+ * so the pool can be shared by many virtual threads without pinning their carrier threads.
+ * Connections are opened and closed by background threads, never while holding a lock.
+ * <p>Requests can be given a {@link Priority}: waiting requests with a higher priority are handed released connections first,
+ * and each priority can be limited to an amount of connections in use (see {@link Options#setPriorityLimit(Priority, int)}).
+ * <p>A pool can also be divided into named partitions (see {@link #createPartition(String, int, boolean)}), each limited to an amount 
+ * of connections in use, so that one set of callers cannot take all of the connections.
+ * <p>A pool can also size itself between its minimum and maximum from observed retrieval waits and usage times 
+ * (see {@link Options#setAdaptiveSizingIntervalMillis(long)}).
+ * <p>Connections can also be retrieved without blocking (see {@link #acquireAsync(long, Executor)},
+ * {@link #getConnectionAndAsync(long, SQLConnectionFunction, Executor)} and {@link #getConnectionAndAcceptAsync(long, SQLConnectionConsumer, Executor)}): 
+ * such requests wait in the same line as waiting threads, and are completed on an executor once a connection is handed to them.
+ * <p>Each pooled connection knows its own pool entry and whether it is available or in use,
+ * so releasing a connection and counting connections take constant time.
+ * <p>A pool can be fixed-size, or can grow and shrink between a minimum amount of idle connections and a maximum amount
+ * of connections (see {@link Options}). Connections are added by a background thread when threads start waiting
+ * and the pool is below its maximum, and idle connections above the minimum are closed after a timeout.
+ * <p>A connection that is found closed when it is retrieved is discarded, and the next one is tried while a replacement
+ * is created in the background.
+ * <p>Available connections can also be validated in the background at an interval (see {@link Options#setValidationIntervalMillis(long)}),
+ * so that broken connections are found and replaced before they are retrieved.
+ * <p>Connections can also be given a maximum lifetime (see {@link Options#setMaxLifetimeMillis(long)}), after which they
+ * are closed and replaced in the background the next time they are released or found available.
+ * <p>Connections that are kept out of the pool for too long can be reported as leaks, along with the thread and 
+ * stack trace that retrieved them, and can optionally be reclaimed (see {@link Options#setLeakDetectionThresholdMillis(long)}).
+ * <p>If the connector has a circuit breaker (see {@link SQLConnector#setCircuitBreaker(SQLCircuitBreaker)}), failed validations
+ * are reported to it, and while it is open, retrievals that would have to wait for a connection fail fast with a 
+ * {@link SQLCircuitBreaker.OpenException}, as do the threads and requests that were waiting when it opened.
  * @author Matthew Tropiano
  */
 public class SQLPool implements AutoCloseable
 {
+	/** Delay before retrying a failed connection creation, in milliseconds. */
+	private static final long CREATE_RETRY_MILLIS = 1000L;
+	/** Maximum time between checks for available connections past their lifetime, in milliseconds. */
+	private static final long MAX_LIFETIME_CHECK_MILLIS = 30000L;
+	/** Maximum amount of background threads. */
+	private static final int MAX_HOUSEKEEPER_THREADS = 4;
+	/** Adaptive sizing: grow if the mean retrieval wait is more than this fraction of the mean usage time. */
+	private static final double ADAPTIVE_WAIT_RATIO = 0.25;
+	/** Adaptive sizing: shrink if the mean usage time rises past this multiple of its baseline. */
+	private static final double ADAPTIVE_LATENCY_TOLERANCE = 1.5;
+	/** Adaptive sizing: multiplier for shrinking on rising usage time. */
+	private static final double ADAPTIVE_DECREASE_FACTOR = 0.75;
+	/** Adaptive sizing: how quickly the usage time baseline follows rising usage times. */
+	private static final double ADAPTIVE_BASELINE_DRIFT = 0.05;
+	/** Logger for leak reports. */
+	private static final Logger LOGGER = Logger.getLogger(SQLPool.class.getName());
+	/** All priorities, highest first. */
+	private static final Priority[] PRIORITIES = Priority.values();
+	/** Counter for naming background threads. */
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger(0);
+	
 	/** The connector used. */
 	private SQLConnector connector;
+	/** The connector's circuit breaker (can be null). */
+	private final SQLCircuitBreaker circuitBreaker;
+	/** Minimum amount of idle connections. */
+	private final int minIdle;
+	/** Maximum amount of connections. */
+	private final int maxSize;
+	/** Current maximum amount of connections (the maximum size, unless sized adaptively). */
+	private volatile int sizeLimit;
+	/** Time until an idle connection above the minimum is closed, in nanoseconds (0 is never). */
+	private final long idleTimeoutNanos;
+	/** Time between validations of an available connection, in nanoseconds (0 is never). */
+	private final long validationIntervalNanos;
+	/** Validation timeout, in seconds. */
+	private final int validationTimeoutSeconds;
+	/** Validation query (null for {@link java.sql.Connection#isValid(int)}). */
+	private final String validationQuery;
+	/** Maximum connection lifetime, in nanoseconds (0 is forever). */
+	private final long maxLifetimeNanos;
+	/** Time until a used connection is reported as leaked, in nanoseconds (0 is never). */
+	private final long leakThresholdNanos;
+	/** Capture the retrieving stack trace of about one in this many retrievals (0 is never). */
+	private final int leakStackTraceInterval;
+	/** If true, leaked connections are closed and removed. */
+	private final boolean reclaimLeakedConnections;
+	
+	/** All managed connections. */
+	private final List<Entry> entries;
+	/** Available connections, most recently released first. */
+	private final Deque<Entry> availableConnections;
+	/** Threads waiting for a connection, in arrival order, per priority (highest first). */
+	private final Queue<Waiter>[] waiters;
+	/** Maximum amount of connections in use per priority. */
+	private final int[] priorityLimits;
+	/** Amount of connections in use (or being taken) per priority. */
+	private final AtomicIntegerArray priorityUsedCounts;
+	/** Amount of available connections. */
+	private final AtomicInteger availableCount;
+	/** Amount of used connections. */
+	private final AtomicInteger usedCount;
+	/** Amount of connections, including ones being created. */
+	private final AtomicInteger totalCount;
+	/** Amount of background threads. */
+	private final int housekeeperThreads;
+	/** Background thread pool for creating connections and closing idle ones (started when first needed). */
+	private final AtomicReference<ScheduledThreadPoolExecutor> housekeeper;
+	/** Is this pool closed? */
+	private volatile boolean closed;
+	
+	/** Connection retrieval times. */
+	private final SQLPoolMetrics.Recorder acquireWait;
+	/** Connection usage times. */
+	private final SQLPoolMetrics.Recorder usage;
+	/** Amount of connections retrieved. */
+	private final LongAdder acquireCount;
+	/** Amount of retrieval timeouts. */
+	private final LongAdder timeoutCount;
+	/** Amount of connections created. */
+	private final LongAdder createdCount;
+	/** Amount of failed connection creations. */
+	private final LongAdder failedCount;
+	/** Amount of connections closed. */
+	private final LongAdder closedCount;
+	/** Amount of waiting threads. */
+	private final AtomicInteger waitingCount;
+	/** Highest amount of used connections. */
+	private final AtomicInteger peakUsedCount;
+	/** Highest amount of used connections since the last adaptive sizing. */
+	private final AtomicInteger intervalPeakUsedCount;
+	/** The name that this pool's management bean is registered under, if any. */
+	private final AtomicReference<ObjectName> mxBeanName;
 	
-	/** List of managed connections. */
-	private final Queue<SQLConnection> availableConnections;
-	/** List of used connections. */
-	private final HashSet<SQLConnection> usedConnections;
+	/** Partitions, by name. */
+	private final ConcurrentHashMap<String, Partition> partitions;
+	/** Connections that partitions can use past their maximums. */
+	private final Semaphore partitionOverflow;
 	
 	/**
-	 * Creates a new connection pool from a {@link SQLConnector}.
+	 * Creates a new fixed-size connection pool from a {@link SQLConnector}.
+	 * All connections are created before this returns.
 	 * @param connector the connector to use.
 	 * @param connectionCount the number of connections to pool.
 	 * @throws SQLException if a connection cannot be established.
 	 */
 	public SQLPool(SQLConnector connector, int connectionCount) throws SQLException
 	{
+		this(connector, new Options(connectionCount, connectionCount, 0L));
+	}
+	
+	/**
+	 * Creates a new fixed-size connection pool from a {@link SQLConnector}.
+	 * All connections are created before this returns, using up to <code>warmUpThreads</code> threads at once.
+	 * If any connection fails, the rest are abandoned, the ones already made are closed, and this throws.
+	 * @param connector the connector to use.
+	 * @param connectionCount the number of connections to pool.
+	 * @param warmUpThreads the maximum amount of connections to establish at the same time.
+	 * @throws IllegalArgumentException if warmUpThreads is less than 1.
+	 * @throws SQLException if a connection cannot be established.
+	 * @since 1.4.0
+	 */
+	public SQLPool(SQLConnector connector, int connectionCount, int warmUpThreads) throws SQLException
+	{
+		this(connector, createFixedOptions(connectionCount, warmUpThreads));
+	}
+	
+	/**
+	 * Creates a new connection pool from a {@link SQLConnector}.
+	 * The minimum amount of idle connections are created before this returns - the rest are created as they are needed.
+	 * @param connector the connector to use.
+	 * @param options the pool sizing options.
+	 * @throws IllegalArgumentException if the minimum amount of idle connections is greater than the maximum amount of connections.
+	 * @throws SQLException if a connection cannot be established.
+	 * @since 1.4.0
+	 */
+	public SQLPool(SQLConnector connector, Options options) throws SQLException
+	{
+		if (options.getMinIdle() > options.getMaxSize())
+			throw new IllegalArgumentException("Minimum idle connections cannot be greater than the maximum amount of connections.");
+		
 		this.connector = connector;
-		this.availableConnections = new LinkedList<SQLConnection>();
-		this.usedConnections = new HashSet<SQLConnection>();
-		for (int i = 0; i < connectionCount; i++)
-			availableConnections.add(connector.getConnection());
+		this.circuitBreaker = connector.getCircuitBreaker();
+		this.minIdle = options.getMinIdle();
+		this.maxSize = options.getMaxSize();
+		this.sizeLimit = maxSize;
+		this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(options.getIdleTimeoutMillis());
+		this.validationIntervalNanos = TimeUnit.MILLISECONDS.toNanos(options.getValidationIntervalMillis());
+		this.validationTimeoutSeconds = options.getValidationTimeoutSeconds();
+		this.validationQuery = options.getValidationQuery();
+		this.maxLifetimeNanos = TimeUnit.MILLISECONDS.toNanos(options.getMaxLifetimeMillis());
+		this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(options.getLeakDetectionThresholdMillis());
+		this.leakStackTraceInterval = options.getLeakStackTraceInterval();
+		this.reclaimLeakedConnections = options.isReclaimLeakedConnections();
+		this.entries = new CopyOnWriteArrayList<Entry>();
+		this.availableConnections = new ConcurrentLinkedDeque<Entry>();
+		this.waiters = createWaiterQueues();
+		this.priorityLimits = new int[PRIORITIES.length];
+		for (Priority priority : PRIORITIES)
+		{
+			int limit = options.getPriorityLimit(priority);
+			this.priorityLimits[priority.ordinal()] = limit > 0 ? limit : Integer.MAX_VALUE;
+		}
+		this.priorityUsedCounts = new AtomicIntegerArray(PRIORITIES.length);
+		this.availableCount = new AtomicInteger(0);
+		this.usedCount = new AtomicInteger(0);
+		this.totalCount = new AtomicInteger(0);
+		this.closed = false;
+		
+		this.acquireWait = new SQLPoolMetrics.Recorder();
+		this.usage = new SQLPoolMetrics.Recorder();
+		this.acquireCount = new LongAdder();
+		this.timeoutCount = new LongAdder();
+		this.createdCount = new LongAdder();
+		this.failedCount = new LongAdder();
+		this.closedCount = new LongAdder();
+		this.waitingCount = new AtomicInteger(0);
+		this.peakUsedCount = new AtomicInteger(0);
+		this.intervalPeakUsedCount = new AtomicInteger(0);
+		this.mxBeanName = new AtomicReference<>(null);
+		this.partitions = new ConcurrentHashMap<>(4);
+		this.partitionOverflow = new Semaphore(options.getPartitionOverflow());
+		
+		this.housekeeperThreads = Math.max(Math.min(maxSize - minIdle, MAX_HOUSEKEEPER_THREADS), 1);
+		this.housekeeper = new AtomicReference<>(null);
+		
+		try {
+			createInitialConnections(options.getWarmUpThreads());
+		} catch (SQLException | RuntimeException e) {
+			close();
+			throw e;
+		}
+		
+		if (idleTimeoutNanos > 0L && maxSize > minIdle)
+		{
+			long period = Math.max(options.getIdleTimeoutMillis() / 2L, 10L);
+			getHousekeeper().scheduleWithFixedDelay(this::closeIdleConnections, period, period, TimeUnit.MILLISECONDS);
+		}
+		if (validationIntervalNanos > 0L)
+		{
+			long period = Math.max(options.getValidationIntervalMillis() / 2L, 10L);
+			getHousekeeper().scheduleWithFixedDelay(this::validateConnections, period, period, TimeUnit.MILLISECONDS);
+		}
+		if (maxLifetimeNanos > 0L)
+		{
+			long period = Math.max(Math.min(options.getMaxLifetimeMillis() / 16L, MAX_LIFETIME_CHECK_MILLIS), 10L);
+			getHousekeeper().scheduleWithFixedDelay(this::closeExpiredConnections, period, period, TimeUnit.MILLISECONDS);
+		}
+		if (leakThresholdNanos > 0L)
+		{
+			long period = Math.max(options.getLeakDetectionThresholdMillis() / 2L, 10L);
+			getHousekeeper().scheduleWithFixedDelay(this::findLeakedConnections, period, period, TimeUnit.MILLISECONDS);
+		}
+		if (options.getAdaptiveSizingIntervalMillis() > 0L && maxSize > Math.max(minIdle, 1))
+		{
+			long period = options.getAdaptiveSizingIntervalMillis();
+			getHousekeeper().scheduleWithFixedDelay(new AdaptiveSizer(), period, period, TimeUnit.MILLISECONDS);
+		}
 	}
 	
 	/**
@@ -76,10 +335,27 @@ public class SQLPool implements AutoCloseable
 	 * @throws SQLException if a connection cannot be re-created or re-established.
 	 */
 	public void getConnectionAnd(long waitMillis, SQLConnectionConsumer handler) throws InterruptedException, TimeoutException, SQLException
+	{
+		getConnectionAndAccept(Priority.NORMAL, waitMillis, handler);
+	}
+	
+	/**
+	 * Retrieves a connection from this pool with a priority, passes it to the provided {@link SQLConnectionConsumer} function,
+	 * calls it, then returns it to the pool.
+	 * @param priority the priority of this request over other waiting requests.
+	 * @param waitMillis the amount of time (in milliseconds) to wait for a connection.
+	 * @param handler the consumer function that accepts the retrieved connection.
+	 * @throws InterruptedException	if an interrupt is thrown by the current thread waiting for an available connection. 
+	 * @throws TimeoutException if the wait lapses and there are no available connections.
+	 * @throws SQLException if a connection cannot be re-created or re-established.
+	 * @since 1.4.0
+	 * @see #getAvailableConnection(Priority, long)
+	 */
+	public void getConnectionAndAccept(Priority priority, long waitMillis, SQLConnectionConsumer handler) throws InterruptedException, TimeoutException, SQLException
 	{
 		SQLConnection conn = null;
 		try {
-			conn = getAvailableConnection(waitMillis);
+			conn = getAvailableConnection(priority, waitMillis);
 			handler.accept(conn);
 		} finally {
 			if (conn != null)
@@ -117,10 +393,29 @@ public class SQLPool implements AutoCloseable
 	 * @throws SQLException if a connection cannot be re-created or re-established.
 	 */
 	public <R> R getConnectionAnd(long waitMillis, SQLConnectionFunction<R> handler) throws InterruptedException, TimeoutException, SQLException
+	{
+		return getConnectionAnd(Priority.NORMAL, waitMillis, handler);
+	}
+	
+	/**
+	 * Retrieves a connection from this pool with a priority, passes it to the provided {@link SQLConnectionFunction},
+	 * calls it, returns it to the pool, and returns the result.
+	 * @param <R> the return type.
+	 * @param priority the priority of this request over other waiting requests.
+	 * @param waitMillis the amount of time (in milliseconds) to wait for a connection.
+	 * @param handler the consumer function that accepts the retrieved connection and returns a value.
+	 * @return the return value of the handler function.
+	 * @throws InterruptedException	if an interrupt is thrown by the current thread waiting for an available connection. 
+	 * @throws TimeoutException if the wait lapses and there are no available connections.
+	 * @throws SQLException if a connection cannot be re-created or re-established.
+	 * @since 1.4.0
+	 * @see #getAvailableConnection(Priority, long)
+	 */
+	public <R> R getConnectionAnd(Priority priority, long waitMillis, SQLConnectionFunction<R> handler) throws InterruptedException, TimeoutException, SQLException
 	{
 		SQLConnection conn = null;
 		try {
-			conn = getAvailableConnection(waitMillis);
+			conn = getAvailableConnection(priority, waitMillis);
 			return handler.apply(conn);
 		} finally {
 			if (conn != null)
@@ -128,6 +423,136 @@ public class SQLPool implements AutoCloseable
 		}	
 	}
 	
+	/**
+	 * Retrieves a connection from this pool without blocking the calling thread, passes it to the provided 
+	 * {@link SQLConnectionConsumer} function on the provided executor, then returns it to the pool.
+	 * If no connection is available, the request waits in line with waiting threads, without occupying a thread.
+	 * @param handler the consumer function that accepts the retrieved connection.
+	 * @param executor the executor to call the handler on.
+	 * @return a future that completes when the handler returns and the connection is released, 
+	 * 		or completes exceptionally with what the handler threw.
+	 * @since 1.4.0
+	 */
+	public CompletableFuture<Void> getConnectionAndAcceptAsync(SQLConnectionConsumer handler, Executor executor)
+	{
+		return getConnectionAndAcceptAsync(0L, handler, executor);
+	}
+	
+	/**
+	 * Retrieves a connection from this pool without blocking the calling thread, passes it to the provided 
+	 * {@link SQLConnectionConsumer} function on the provided executor, then returns it to the pool.
+	 * If no connection is available, the request waits in line with waiting threads, without occupying a thread.
+	 * @param waitMillis the amount of time (in milliseconds) to wait for a connection.
+	 * @param handler the consumer function that accepts the retrieved connection.
+	 * @param executor the executor to call the handler on.
+	 * @return a future that completes when the handler returns and the connection is released, 
+	 * 		or completes exceptionally with a {@link TimeoutException} if the wait lapses, or with what the handler threw.
+	 * @since 1.4.0
+	 */
+	public CompletableFuture<Void> getConnectionAndAcceptAsync(long waitMillis, SQLConnectionConsumer handler, Executor executor)
+	{
+		return getConnectionAndAsync(waitMillis, (connection) -> {
+			handler.accept(connection);
+			return null;
+		}, executor);
+	}
+	
+	/**
+	 * Retrieves a connection from this pool without blocking the calling thread, passes it to the provided 
+	 * {@link SQLConnectionFunction} on the provided executor, returns it to the pool, and completes with the result.
+	 * If no connection is available, the request waits in line with waiting threads, without occupying a thread.
+	 * @param <R> the return type.
+	 * @param handler the consumer function that accepts the retrieved connection and returns a value.
+	 * @param executor the executor to call the handler on.
+	 * @return a future that completes with the return value of the handler function after the connection is released,
+	 * 		or completes exceptionally with what the handler threw.
+	 * @since 1.4.0
+	 */
+	public <R> CompletableFuture<R> getConnectionAndAsync(SQLConnectionFunction<R> handler, Executor executor)
+	{
+		return getConnectionAndAsync(0L, handler, executor);
+	}
+	
+	/**
+	 * Retrieves a connection from this pool without blocking the calling thread, passes it to the provided 
+	 * {@link SQLConnectionFunction} on the provided executor, returns it to the pool, and completes with the result.
+	 * If no connection is available, the request waits in line with waiting threads, without occupying a thread.
+	 * @param <R> the return type.
+	 * @param waitMillis the amount of time (in milliseconds) to wait for a connection.
+	 * @param handler the consumer function that accepts the retrieved connection and returns a value.
+	 * @param executor the executor to call the handler on.
+	 * @return a future that completes with the return value of the handler function after the connection is released,
+	 * 		or completes exceptionally with a {@link TimeoutException} if the wait lapses, or with what the handler threw.
+	 * @since 1.4.0
+	 */
+	public <R> CompletableFuture<R> getConnectionAndAsync(long waitMillis, SQLConnectionFunction<R> handler, Executor executor)
+	{
+		return getConnectionAndAsync(Priority.NORMAL, waitMillis, handler, executor);
+	}
+	
+	/**
+	 * Retrieves a connection from this pool with a priority without blocking the calling thread, passes it to the provided 
+	 * {@link SQLConnectionFunction} on the provided executor, returns it to the pool, and completes with the result.
+	 * If no connection is available, the request waits in line with waiting threads of the same priority, without occupying a thread.
+	 * @param <R> the return type.
+	 * @param priority the priority of this request over other waiting requests.
+	 * @param waitMillis the amount of time (in milliseconds) to wait for a connection.
+	 * @param handler the consumer function that accepts the retrieved connection and returns a value.
+	 * @param executor the executor to call the handler on.
+	 * @return a future that completes with the return value of the handler function after the connection is released,
+	 * 		or completes exceptionally with a {@link TimeoutException} if the wait lapses, or with what the handler threw.
+	 * @since 1.4.0
+	 */
+	public <R> CompletableFuture<R> getConnectionAndAsync(Priority priority, long waitMillis, SQLConnectionFunction<R> handler, Executor executor)
+	{
+		AsyncRequest<R> request = new AsyncRequest<>(priority.ordinal(), waitMillis, handler, true, executor);
+		request.acquire();
+		return request.future;
+	}
+	
+	/**
+	 * Retrieves an available connection from the pool without blocking the calling thread.
+	 * The returned future is completed on the common {@link ForkJoinPool}.
+	 * @return a future that completes with a connection to use, which must be released to this pool.
+	 * @since 1.4.0
+	 * @see #acquireAsync(long, Executor)
+	 */
+	public CompletableFuture<SQLConnection> acquireAsync()
+	{
+		return acquireAsync(0L, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Retrieves an available connection from the pool without blocking the calling thread.
+	 * @param executor the executor to complete the returned future on.
+	 * @return a future that completes with a connection to use, which must be released to this pool.
+	 * @since 1.4.0
+	 * @see #acquireAsync(long, Executor)
+	 */
+	public CompletableFuture<SQLConnection> acquireAsync(Executor executor)
+	{
+		return acquireAsync(0L, executor);
+	}
+	
+	/**
+	 * Retrieves an available connection from the pool without blocking the calling thread.
+	 * If no connection is available, the request waits in line with waiting threads, without occupying a thread,
+	 * and the returned future is completed on the provided executor once a connection is handed to it.
+	 * Cancelling the returned future stops waiting, and a connection that is retrieved after it is cancelled is released.
+	 * @param waitMillis the amount of time (in milliseconds) to wait for a connection.
+	 * @param executor the executor to complete the returned future on.
+	 * @return a future that completes with a connection to use, which must be released to this pool,
+	 * 		or completes exceptionally with a {@link TimeoutException} if the wait lapses,
+	 * 		or an {@link IllegalStateException} if this pool is closed.
+	 * @since 1.4.0
+	 */
+	public CompletableFuture<SQLConnection> acquireAsync(long waitMillis, Executor executor)
+	{
+		AsyncRequest<SQLConnection> request = new AsyncRequest<>(Priority.NORMAL.ordinal(), waitMillis, (connection) -> connection, false, executor);
+		request.acquire();
+		return request.future;
+	}
+	
 	/**
 	 * Retrieves an available connection from the pool.
 	 * @return a connection to use.
@@ -153,91 +578,2236 @@ public class SQLPool implements AutoCloseable
 	 */
 	public SQLConnection getAvailableConnection(long waitMillis) throws InterruptedException, TimeoutException, SQLException
 	{
-		synchronized (availableConnections)
+		return getAvailableConnection(Priority.NORMAL, waitMillis);
+	}
+	
+	/**
+	 * Retrieves an available connection from the pool with a priority.
+	 * Waiting requests with a higher priority are handed released connections first, and requests of the same
+	 * priority are served in the order that they started waiting. If the priority's limit of connections in use
+	 * is reached (see {@link Options#setPriorityLimit(Priority, int)}), this waits even if connections are available.
+	 * @param priority the priority of this request over other waiting requests.
+	 * @param waitMillis the amount of time (in milliseconds) to wait for a connection.
+	 * @return a connection to use.
+	 * @throws InterruptedException	if an interrupt is thrown by the current thread waiting for an available connection. 
+	 * @throws TimeoutException if the wait lapses and there are no available connections.
+	 * @throws SQLException if a connection cannot be re-created or re-established.
+	 * @since 1.4.0
+	 */
+	public SQLConnection getAvailableConnection(Priority priority, long waitMillis) throws InterruptedException, TimeoutException, SQLException
+	{
+		return getAvailableConnection(priority.ordinal(), waitMillis, null, false);
+	}
+	
+	// Retrieves an available connection for a priority, and for a partition (if not null) that holds a permit for it.
+	private SQLConnection getAvailableConnection(int lane, long waitMillis, Partition partition, boolean partitionOverflow) throws InterruptedException, TimeoutException, SQLException
+	{
+		long start = System.nanoTime();
+		long deadline = waitMillis > 0L ? start + TimeUnit.MILLISECONDS.toNanos(waitMillis) : 0L;
+		while (true)
 		{
-			if (availableConnections.isEmpty())
+			if (closed)
+				throw new IllegalStateException("This pool was closed.");
+			
+			Entry entry = null;
+			// Do not cut in front of waiting threads of the same or higher priority.
+			if (!hasWaiters(lane) && reserve(lane) && (entry = availableConnections.pollFirst()) == null)
+				unreserve(lane);
+			if (entry == null)
 			{
-				availableConnections.wait(waitMillis);
-				if (availableConnections.isEmpty())
-					throw new TimeoutException("no available connections.");
+				// Do not wait for connections that cannot be made.
+				SQLCircuitBreaker.OpenException rejection;
+				if (circuitBreaker != null && (rejection = circuitBreaker.getRejection()) != null)
+					throw rejection;
+				if (isBelowLimit(lane))
+					grow();
+				waitingCount.incrementAndGet();
+				try {
+					entry = waitForConnection(lane, waitMillis > 0L, deadline);
+				} catch (TimeoutException e) {
+					timeoutCount.increment();
+					throw e;
+				} finally {
+					waitingCount.decrementAndGet();
+				}
 			}
 			
-			SQLConnection out;
-			if ((out = availableConnections.poll()).isClosed())
+			// Attach the lane and partition before the entry is seen as used, so that a reclaimed leak gives back its reservation and permit.
+			entry.priority = lane;
+			entry.partition = partition;
+			entry.partitionOverflow = partitionOverflow;
+			entry.borrowed = System.nanoTime();
+			if (!entry.setState(Entry.STATE_AVAILABLE, Entry.STATE_USED))
 			{
-				out = connector.getConnection();
+				entry.partition = null;
+				unreserve(lane);
+				throw new IllegalStateException("This pool was closed.");
 			}
 			
-			usedConnections.add(out);
-			return out;
+			boolean broken;
+			try {
+				broken = entry.connection.isClosed();
+			} catch (SQLException e) {
+				entry.partition = null;
+				removeEntry(entry, Entry.STATE_USED);
+				releaseReserved(lane);
+				replenish();
+				throw e;
+			}
+			
+			if (!broken)
+			{
+				long now = System.nanoTime();
+				entry.borrowed = now;
+				if (leakThresholdNanos > 0L)
+					entry.setBorrower(Thread.currentThread(), leakStackTraceInterval > 0 && ThreadLocalRandom.current().nextInt(leakStackTraceInterval) == 0 ? new Throwable("Connection retrieved here.") : null);
+				acquireWait.record(now - start);
+				acquireCount.increment();
+				return entry.connection;
+			}
+			
+			// Replace closed connections in the background and try the next one.
+			entry.partition = null;
+			removeEntry(entry, Entry.STATE_USED);
+			releaseReserved(lane);
+			replenish();
 		}
 	}
 	
-	/**
-	 * Gets the number of available connections.
-	 * @return the amount of connections currently used.
-	 */
-	public int getAvailableConnectionCount()
+	// Waits in line for a connection, until a deadline from System.nanoTime() if timed.
+	// The returned connection is reserved for the priority.
+	private Entry waitForConnection(int lane, boolean timed, long deadline) throws InterruptedException, TimeoutException, SQLException
 	{
-		return availableConnections.size();
+		Waiter waiter = new Waiter(Thread.currentThread());
+		waiters[lane].add(waiter);
+		
+		// A connection may have been released before this was in line.
+		Entry out;
+		if (reserve(lane))
+		{
+			if ((out = availableConnections.pollFirst()) == null)
+				unreserve(lane);
+			else if (waiter.cancel())
+			{
+				waiters[lane].remove(waiter);
+				return out;
+			}
+			else
+			{
+				// Handed a connection in the meantime - keep that one.
+				unreserve(lane);
+				offerConnection(out);
+			}
+		}
+		
+		while ((out = waiter.getEntry()) == null)
+		{
+			if (closed && waiter.cancel())
+			{
+				waiters[lane].remove(waiter);
+				throw new IllegalStateException("This pool was closed.");
+			}
+			
+			// Waiting threads are not failed by the trial that they may have started.
+			SQLCircuitBreaker.OpenException rejection;
+			if (circuitBreaker != null && circuitBreaker.getState() == SQLCircuitBreaker.State.OPEN 
+				&& (rejection = circuitBreaker.getRejection()) != null && waiter.cancel())
+			{
+				waiters[lane].remove(waiter);
+				throw rejection;
+			}
+			
+			if (Thread.interrupted())
+			{
+				if (waiter.cancel())
+				{
+					waiters[lane].remove(waiter);
+					throw new InterruptedException();
+				}
+				unreserve(lane);
+				offerConnection(waiter.getEntry());
+				throw new InterruptedException();
+			}
+			
+			if (timed)
+			{
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0L)
+				{
+					if (waiter.cancel())
+					{
+						waiters[lane].remove(waiter);
+						throw new TimeoutException("no available connections.");
+					}
+					return waiter.getEntry();
+				}
+				LockSupport.parkNanos(this, remaining);
+			}
+			else
+			{
+				LockSupport.park(this);
+			}
+		}
+		return out;
 	}
 	
-	/**
-	 * Gets the number of connections in use.
-	 * @return the amount of connections currently used.
-	 */
-	public int getUsedConnectionCount()
+	// Hands a connection to the longest-waiting thread of the highest priority that is below its limit, 
+	// or returns it to the available connections if none are waiting.
+	private void offerConnection(Entry entry)
 	{
-		return usedConnections.size();
+		while (entry != null)
+		{
+			for (int lane = 0; lane < waiters.length; lane++)
+			{
+				Queue<Waiter> queue = waiters[lane];
+				if (queue.isEmpty() || !reserve(lane))
+					continue;
+				
+				// The reservation goes with the connection.
+				Waiter waiter;
+				while ((waiter = queue.poll()) != null)
+				{
+					if (waiter.offer(entry))
+						return;
+				}
+				unreserve(lane);
+			}
+			
+			availableConnections.offerFirst(entry);
+			
+			// A thread may have gotten in line after the check above but before the connection was made available.
+			entry = hasWaiters(waiters.length - 1) ? availableConnections.pollFirst() : null;
+		}
 	}
-
-	/**
-	 * Gets the number of total connections.
-	 * @return the total amount of managed connections.
-	 */
-	public int getTotalConnectionCount()
+	
+	// Checks if threads are waiting at or above a priority, and can take a connection.
+	private boolean hasWaiters(int lowestLane)
 	{
-		return getAvailableConnectionCount() + getUsedConnectionCount();
+		for (int lane = 0; lane <= lowestLane; lane++)
+		{
+			if (!waiters[lane].isEmpty() && isBelowLimit(lane))
+				return true;
+		}
+		return false;
 	}
-
-	/**
-	 * Releases a connection back to the pool.
-	 * Also cancels a transaction that it may still be in, if any.
-	 * @param connection the connection to release.
-	 */
-	public void releaseConnection(SQLConnection connection)
+	
+	// Checks if a priority is below its limit of connections in use.
+	private boolean isBelowLimit(int lane)
 	{
-		if (!usedConnections.contains(connection))
-			throw new IllegalStateException("Tried to release a connection not maintained by this pool.");
+		return priorityUsedCounts.get(lane) < priorityLimits[lane];
+	}
+	
+	// Reserves a connection for a priority, if it is below its limit.
+	private boolean reserve(int lane)
+	{
+		int used;
+		do {
+			if ((used = priorityUsedCounts.get(lane)) >= priorityLimits[lane])
+				return false;
+		} while (!priorityUsedCounts.compareAndSet(lane, used, used + 1));
+		return true;
+	}
+	
+	// Gives back a reservation for a connection that is about to be offered again.
+	private void unreserve(int lane)
+	{
+		priorityUsedCounts.decrementAndGet(lane);
+	}
+	
+	// Gives back a reservation for a connection that was removed, and hands an available connection 
+	// to a thread that may have been waiting on the priority's limit.
+	private void releaseReserved(int lane)
+	{
+		unreserve(lane);
+		Entry entry;
+		if (hasWaiters(waiters.length - 1) && (entry = availableConnections.pollFirst()) != null)
+			offerConnection(entry);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static Queue<Waiter>[] createWaiterQueues()
+	{
+		Queue<Waiter>[] out = (Queue<Waiter>[])new Queue<?>[PRIORITIES.length];
+		for (int i = 0; i < out.length; i++)
+			out[i] = new ConcurrentLinkedQueue<Waiter>();
+		return out;
+	}
+	
+	// Creates the options for a fixed-size pool.
+	private static Options createFixedOptions(int connectionCount, int warmUpThreads)
+	{
+		Options out = new Options(connectionCount, connectionCount, 0L);
+		out.setWarmUpThreads(warmUpThreads);
+		return out;
+	}
+	
+	// Creates the minimum idle connections, on up to the provided amount of threads at once.
+	private void createInitialConnections(int threads) throws SQLException
+	{
+		if (threads <= 1 || minIdle <= 1)
+		{
+			for (int i = 0; i < minIdle; i++)
+			{
+				totalCount.incrementAndGet();
+				availableConnections.add(createEntry());
+			}
+			return;
+		}
 		
-		connection.endTransaction();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, minIdle), new HousekeeperThreadFactory());
+		try {
+			CompletionService<Entry> completion = new ExecutorCompletionService<>(executor);
+			for (int i = 0; i < minIdle; i++)
+			{
+				totalCount.incrementAndGet();
+				completion.submit(() -> {
+					Entry entry = createEntry();
+					// The pool may have been closed by a failure in another thread.
+					if (closed && entry.remove())
+						closeConnection(entry);
+					return entry;
+				});
+			}
+			// Fail on the first error, in completion order.
+			for (int i = 0; i < minIdle; i++)
+				availableConnections.add(completion.take().get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while creating connections.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException)
+				throw (SQLException)cause;
+			else if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			else if (cause instanceof Error)
+				throw (Error)cause;
+			throw new SQLException(cause);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	// Creates a new connection and its entry, counted as available.
+	private Entry createEntry() throws SQLException
+	{
+		long expiresAt = 0L;
+		if (maxLifetimeNanos > 0L)
+		{
+			// Up to a quarter less, so that connections made at the same time do not expire at the same time.
+			expiresAt = System.nanoTime() + maxLifetimeNanos - ThreadLocalRandom.current().nextLong(maxLifetimeNanos / 4L + 1L);
+		}
+		SQLConnection connection;
+		try {
+			connection = connector.getConnection();
+		} catch (SQLException e) {
+			failedCount.increment();
+			throw e;
+		}
+		createdCount.increment();
+		Entry out = new Entry(this, connection, expiresAt);
+		out.connection.setPoolEntry(out);
+		entries.add(out);
+		availableCount.incrementAndGet();
+		return out;
+	}
+	
+	// Gets the background thread pool, starting it if it was not needed until now.
+	// If this pool is closed, tasks given to it are rejected.
+	private ScheduledThreadPoolExecutor getHousekeeper()
+	{
+		ScheduledThreadPoolExecutor out;
+		if ((out = housekeeper.get()) != null)
+			return out;
+		if (closed)
+			throw new RejectedExecutionException("This pool was closed.");
 		
-		synchronized (availableConnections)
+		out = new ScheduledThreadPoolExecutor(housekeeperThreads, new HousekeeperThreadFactory());
+		out.setRemoveOnCancelPolicy(true);
+		if (!housekeeper.compareAndSet(null, out))
 		{
-			usedConnections.remove(connection);
-			availableConnections.add(connection);
-			availableConnections.notifyAll();
+			out.shutdownNow();
+			return housekeeper.get();
 		}
+		// The pool may have been closed before this was visible to close().
+		if (closed)
+			out.shutdownNow();
+		return out;
 	}
 	
-	/**
-	 * Closes all open connections in the pool.
-	 */
-	@Override
-	public void close()
+	// Starts creating a connection in the background, if the pool is below its maximum size.
+	private void grow()
 	{
-		synchronized (availableConnections)
+		int total;
+		while ((total = totalCount.get()) < sizeLimit)
 		{
-			Iterator<SQLConnection> it = usedConnections.iterator();
-			while (it.hasNext())
+			if (totalCount.compareAndSet(total, total + 1))
 			{
-				availableConnections.add(it.next());
-				it.remove();
+				try {
+					getHousekeeper().execute(this::addConnection);
+				} catch (RejectedExecutionException e) {
+					totalCount.decrementAndGet(); // closed.
+				}
+				return;
 			}
-			while (!availableConnections.isEmpty())
-			{
-				availableConnections.poll().close();
+		}
+	}
+	
+	// Starts creating a replacement connection in the background, if the pool is below its minimum size or threads are waiting.
+	private void replenish()
+	{
+		if (totalCount.get() < minIdle || hasWaiters(waiters.length - 1))
+			grow();
+	}
+	
+	// Creates a connection and hands it to a waiting thread (called in the background).
+	private void addConnection()
+	{
+		Entry entry;
+		try {
+			entry = createEntry();
+		} catch (SQLException e) {
+			totalCount.decrementAndGet();
+			if (circuitBreaker != null && circuitBreaker.getState() == SQLCircuitBreaker.State.OPEN)
+				rejectWaiters();
+			try {
+				getHousekeeper().schedule(() -> {
+					if (hasWaiters(waiters.length - 1))
+						grow();
+				}, CREATE_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e2) {
+				// Closed - do nothing.
 			}
+			return;
+		}
+		
+		if (closed)
+		{
+			if (entry.remove())
+				closeConnection(entry);
+			return;
+		}
+		offerConnection(entry);
+	}
+	
+	// Closes connections that have been idle for too long, down to the minimum idle amount (called in the background).
+	private void closeIdleConnections()
+	{
+		long now = System.nanoTime();
+		for (Entry entry : entries)
+		{
+			if (availableCount.get() <= minIdle)
+				return;
+			// Only close what can be taken out of the available connections, so that it is not in use.
+			if (entry.state.get() == Entry.STATE_AVAILABLE && now - entry.lastReleased > idleTimeoutNanos && availableConnections.remove(entry))
+				removeEntry(entry, Entry.STATE_AVAILABLE);
+		}
+	}
+	
+	// Validates available connections that have not been validated within the interval, 
+	// and replaces broken ones (called in the background).
+	private void validateConnections()
+	{
+		for (Entry entry : entries)
+		{
+			if (closed)
+				return;
+			// Only validate what can be taken out of the available connections, so that it is not in use.
+			if (entry.state.get() == Entry.STATE_AVAILABLE && System.nanoTime() - entry.lastValidated >= validationIntervalNanos && availableConnections.remove(entry))
+			{
+				if (isValid(entry.connection))
+				{
+					// Validations only count while closed: a half-open breaker is left to its trial connection.
+					if (circuitBreaker != null && circuitBreaker.getState() == SQLCircuitBreaker.State.CLOSED)
+						circuitBreaker.recordSuccess();
+					entry.lastValidated = System.nanoTime();
+					offerConnection(entry);
+				}
+				else
+				{
+					removeEntry(entry, Entry.STATE_AVAILABLE);
+					if (circuitBreaker != null && circuitBreaker.getState() == SQLCircuitBreaker.State.CLOSED && circuitBreaker.recordFailure())
+						rejectWaiters();
+					replenish();
+				}
+			}
+		}
+	}
+	
+	// Fails waiting requests, and wakes waiting threads to fail, after the circuit breaker opened.
+	private void rejectWaiters()
+	{
+		for (Queue<Waiter> queue : waiters)
+		{
+			for (Waiter waiter : queue)
+				waiter.reject();
+		}
+	}
+	
+	// Checks if a connection is still usable.
+	private boolean isValid(SQLConnection connection)
+	{
+		try {
+			if (connection.isClosed())
+				return false;
+			if (validationQuery == null)
+				return connection.connection.isValid(validationTimeoutSeconds);
+			try (PreparedStatement statement = connection.connection.prepareStatement(validationQuery))
+			{
+				statement.setQueryTimeout(validationTimeoutSeconds);
+				statement.execute();
+				return true;
+			}
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+	
+	// Closes available connections that are past their lifetime, and replaces them (called in the background).
+	private void closeExpiredConnections()
+	{
+		for (Entry entry : entries)
+		{
+			if (closed)
+				return;
+			if (entry.state.get() == Entry.STATE_AVAILABLE && entry.isExpired() && availableConnections.remove(entry))
+			{
+				removeEntry(entry, Entry.STATE_AVAILABLE);
+				replenish();
+			}
+		}
+	}
+	
+	// Reports connections that have been used for too long, and reclaims them if set (called in the background).
+	private void findLeakedConnections()
+	{
+		long now = System.nanoTime();
+		for (Entry entry : entries)
+		{
+			if (closed)
+				return;
+			long borrowed = entry.borrowed;
+			if (entry.state.get() != Entry.STATE_USED || entry.leakReported || now - borrowed < leakThresholdNanos)
+				continue;
+			
+			Thread borrower = entry.borrower;
+			Throwable stack = entry.borrowStack;
+			// Hold the entry, and let it go if it was released and retrieved again since it was checked.
+			if (!entry.setState(Entry.STATE_USED, Entry.STATE_RECLAIMING))
+				continue;
+			if (entry.borrowed != borrowed)
+			{
+				entry.setState(Entry.STATE_RECLAIMING, Entry.STATE_USED);
+				continue;
+			}
+			
+			entry.leakReported = true;
+			boolean reclaim = reclaimLeakedConnections && entry.setState(Entry.STATE_RECLAIMING, Entry.STATE_REMOVED);
+			if (!reclaim)
+				entry.setState(Entry.STATE_RECLAIMING, Entry.STATE_USED);
+			
+			String message = "Possible connection leak: connection retrieved by " + (borrower != null ? borrower.toString() : "an unknown thread") 
+				+ " has been in use for " + TimeUnit.NANOSECONDS.toMillis(now - borrowed) + " ms"
+				+ (reclaim ? " - reclaiming it." : ".");
+			if (stack != null)
+				LOGGER.log(Level.WARNING, message, stack);
+			else
+				LOGGER.warning(message);
+			
+			if (reclaim)
+			{
+				entries.remove(entry);
+				totalCount.decrementAndGet();
+				// Close the wrapped connection directly: the wrapper may still be in use by its borrower.
+				try {
+					entry.connection.connection.close();
+				} catch (SQLException e) {
+					// Do nothing.
+				}
+				closedCount.increment();
+				releaseReserved(entry.priority);
+				Partition partition = entry.partition;
+				if (partition != null)
+				{
+					entry.partition = null;
+					partition.release(entry.partitionOverflow);
+				}
+				replenish();
+			}
+		}
+	}
+	
+	// Removes an entry that is not in the available connections, and closes its connection.
+	private void removeEntry(Entry entry, int state)
+	{
+		if (entry.setState(state, Entry.STATE_REMOVED))
+		{
+			entries.remove(entry);
+			totalCount.decrementAndGet();
+			closeConnection(entry);
+		}
+	}
+	
+	private void closeConnection(Entry entry)
+	{
+		entry.connection.close();
+		closedCount.increment();
+	}
+	
+	/**
+	 * Gets the number of available connections.
+	 * @return the amount of connections currently used.
+	 */
+	public int getAvailableConnectionCount()
+	{
+		return availableCount.get();
+	}
+	
+	/**
+	 * Gets the number of connections in use.
+	 * @return the amount of connections currently used.
+	 */
+	public int getUsedConnectionCount()
+	{
+		return usedCount.get();
+	}
+
+	/**
+	 * Gets the number of total connections.
+	 * @return the total amount of managed connections.
+	 */
+	public int getTotalConnectionCount()
+	{
+		return getAvailableConnectionCount() + getUsedConnectionCount();
+	}
+
+	/**
+	 * Gets a snapshot of this pool's metrics.
+	 * Recording metrics does not lock or allocate, so they are always kept.
+	 * @return the current metrics.
+	 * @since 1.4.0
+	 */
+	public SQLPoolMetrics getMetrics()
+	{
+		return new SQLPoolMetrics(
+			availableCount.get(),
+			usedCount.get(),
+			waitingCount.get(),
+			peakUsedCount.get(),
+			sizeLimit,
+			acquireCount.sum(),
+			timeoutCount.sum(),
+			createdCount.sum(),
+			failedCount.sum(),
+			closedCount.sum(),
+			acquireWait.snapshot(),
+			usage.snapshot(),
+			getPartitionMetrics()
+		);
+	}
+	
+	// Gets the metrics of each partition, in name order.
+	private Map<String, SQLPoolMetrics.PartitionMetrics> getPartitionMetrics()
+	{
+		Map<String, SQLPoolMetrics.PartitionMetrics> out = new TreeMap<>();
+		for (Partition partition : partitions.values())
+			out.put(partition.name, partition.getMetrics());
+		return out;
+	}
+	
+	/**
+	 * Creates a partition of this pool: a named view that limits how many of this pool's connections
+	 * can be in use through it at the same time, so that one slow set of callers (like one DAO) cannot take all of them.
+	 * Threads past the partition's maximum wait for a connection of the same partition to be released.
+	 * <p>A partition created with overflow can use more connections than its maximum while the pool's shared partition overflow 
+	 * has room (see {@link Options#setPartitionOverflow(int)}), and stops using them when they are released.
+	 * @param name the partition name.
+	 * @param maxConcurrency the maximum amount of connections that can be in use through the partition, not counting overflow.
+	 * @param overflow if true, the partition can use the pool's shared partition overflow.
+	 * @return the new partition.
+	 * @throws IllegalArgumentException if maxConcurrency is less than 1, or if this pool already has a partition with this name.
+	 * @since 1.4.0
+	 * @see SQLAbstractDAO#SQLAbstractDAO(Partition)
+	 */
+	public Partition createPartition(String name, int maxConcurrency, boolean overflow)
+	{
+		if (maxConcurrency < 1)
+			throw new IllegalArgumentException("maxConcurrency cannot be less than 1.");
+		Partition out = new Partition(name, maxConcurrency, overflow);
+		if (partitions.putIfAbsent(name, out) != null)
+			throw new IllegalArgumentException("This pool already has a partition named \"" + name + "\".");
+		return out;
+	}
+	
+	/**
+	 * Gets a partition of this pool by name.
+	 * @param name the partition name.
+	 * @return the partition, or null if no such partition.
+	 * @since 1.4.0
+	 */
+	public Partition getPartition(String name)
+	{
+		return partitions.get(name);
+	}
+	
+	/**
+	 * Registers a management bean for this pool's metrics with the platform MBean server, 
+	 * under <code>com.blackrook.sql:type=SQLPool,name=<i>name</i></code>.
+	 * It is unregistered when this pool is closed.
+	 * @param name the pool name to register under.
+	 * @return the registered object name.
+	 * @throws IllegalStateException if this pool already registered a bean.
+	 * @throws JMException if the bean could not be registered (for example, if the name is already taken).
+	 * @see SQLPoolMXBean
+	 * @since 1.4.0
+	 */
+	public ObjectName registerMXBean(String name) throws JMException
+	{
+		ObjectName out = new ObjectName("com.blackrook.sql:type=SQLPool,name=" + ObjectName.quote(name));
+		if (!mxBeanName.compareAndSet(null, out))
+			throw new IllegalStateException("This pool's management bean is already registered.");
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new MXBean(), out);
+		} catch (JMException e) {
+			mxBeanName.set(null);
+			throw e;
+		}
+		return out;
+	}
+	
+	// Unregisters the management bean, if registered.
+	private void unregisterMXBean()
+	{
+		ObjectName name;
+		if ((name = mxBeanName.getAndSet(null)) == null)
+			return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		} catch (JMException e) {
+			// Do nothing.
+		}
+	}
+	
+	/**
+	 * Releases a connection back to the pool.
+	 * Also cancels a transaction that it may still be in, if any.
+	 * @param connection the connection to release.
+	 */
+	public void releaseConnection(SQLConnection connection)
+	{
+		Entry entry = connection.getPoolEntry();
+		if (entry == null || entry.pool != this)
+			throw new IllegalStateException("Tried to release a connection not maintained by this pool.");
+		if (!entry.setState(Entry.STATE_USED, Entry.STATE_AVAILABLE))
+		{
+			// Reclaimed as leaked, or closed with the pool.
+			if (entry.state.get() == Entry.STATE_REMOVED)
+				return;
+			throw new IllegalStateException("Tried to release a connection not maintained by this pool.");
+		}
+		
+		if (leakThresholdNanos > 0L)
+			entry.setBorrower(null, null);
+		Partition partition = entry.partition;
+		boolean usedOverflow = entry.partitionOverflow;
+		entry.partition = null;
+		long now = System.nanoTime();
+		usage.record(now - entry.borrowed);
+		entry.lastReleased = now;
+		try {
+			connection.endTransaction();
+		} finally {
+			// Also close connections past a lowered size limit.
+			if (entry.isExpired() || totalCount.get() > sizeLimit)
+			{
+				removeEntry(entry, Entry.STATE_AVAILABLE);
+				releaseReserved(entry.priority);
+				replenish();
+			}
+			else
+			{
+				unreserve(entry.priority);
+				offerConnection(entry);
+			}
+			if (partition != null)
+				partition.release(usedOverflow);
+		}
+	}
+	
+	/**
+	 * Closes all open connections in the pool.
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+		ScheduledThreadPoolExecutor housekeeper = this.housekeeper.get();
+		if (housekeeper != null)
+			housekeeper.shutdownNow();
+		for (Queue<Waiter> queue : waiters)
+		{
+			Waiter waiter;
+			while ((waiter = queue.poll()) != null)
+				waiter.close();
+		}
+		unregisterMXBean();
+		for (Entry entry : entries)
+		{
+			if (entry.remove())
+				closeConnection(entry);
+		}
+		entries.clear();
+		availableConnections.clear();
+	}
+	
+	// Changes the counter for a state.
+	private void count(int state, int delta)
+	{
+		if (state == Entry.STATE_AVAILABLE)
+			availableCount.addAndGet(delta);
+		else if (state == Entry.STATE_USED || state == Entry.STATE_RECLAIMING)
+		{
+			int used = usedCount.addAndGet(delta);
+			int peak;
+			while (used > (peak = peakUsedCount.get()) && !peakUsedCount.compareAndSet(peak, used))
+				;
+			while (used > (peak = intervalPeakUsedCount.get()) && !intervalPeakUsedCount.compareAndSet(peak, used))
+				;
+		}
+	}
+	
+	/**
+	 * A single pooled connection and its state.
+	 * The state is only changed atomically, and the pool's counters are changed with it.
+	 */
+	static final class Entry
+	{
+		/** Available in the pool (or being handed to a waiting thread). */
+		static final int STATE_AVAILABLE = 0;
+		/** Retrieved from the pool. */
+		static final int STATE_USED = 1;
+		/** Closed or replaced. */
+		static final int STATE_REMOVED = 2;
+		/** Retrieved from the pool, and held by the leak detector while it checks the retrieval. */
+		static final int STATE_RECLAIMING = 3;
+		
+		/** The owning pool. */
+		private final SQLPool pool;
+		/** The pooled connection. */
+		private final SQLConnection connection;
+		/** The current state. */
+		private final AtomicInteger state;
+		/** When this was last made available, from {@link System#nanoTime()}. */
+		private volatile long lastReleased;
+		/** When this was last retrieved, from {@link System#nanoTime()}. */
+		private volatile long borrowed;
+		/** The priority index that this was last retrieved with. */
+		private volatile int priority;
+		/** The partition that this was retrieved through, if any. */
+		private volatile Partition partition;
+		/** Did the partition use its overflow for this? */
+		private volatile boolean partitionOverflow;
+		/** The thread that last retrieved this (if leak detection is on). */
+		private volatile Thread borrower;
+		/** Where this was last retrieved (if leak detection is on and the stack trace was sampled). */
+		private volatile Throwable borrowStack;
+		/** Was the last retrieval reported as a leak? */
+		private volatile boolean leakReported;
+		/** When this was last validated (or created), from {@link System#nanoTime()}. */
+		private volatile long lastValidated;
+		/** When this expires, from {@link System#nanoTime()} (0 is never). */
+		private final long expiresAt;
+		
+		private Entry(SQLPool pool, SQLConnection connection, long expiresAt)
+		{
+			this.pool = pool;
+			this.connection = connection;
+			this.expiresAt = expiresAt;
+			this.state = new AtomicInteger(STATE_AVAILABLE);
+			this.lastReleased = System.nanoTime();
+			this.lastValidated = lastReleased;
+			this.borrowed = 0L;
+			this.priority = 0;
+			this.partition = null;
+			this.partitionOverflow = false;
+			this.borrower = null;
+			this.borrowStack = null;
+			this.leakReported = false;
+		}
+		
+		/**
+		 * Sets the retrieving thread for leak detection.
+		 * @param thread the retrieving thread, or null if released.
+		 * @param stack the stack trace of the retrieval, or null if not captured.
+		 */
+		private void setBorrower(Thread thread, Throwable stack)
+		{
+			this.borrower = thread;
+			this.borrowStack = stack;
+			this.leakReported = false;
+		}
+		
+		/**
+		 * Changes this entry's state, if it is in the expected state.
+		 * A change from used waits for the leak detector to let go of this entry, if it is holding it.
+		 * @param expected the expected state.
+		 * @param next the new state.
+		 * @return true if changed, false if this was not in the expected state.
+		 */
+		private boolean setState(int expected, int next)
+		{
+			while (!state.compareAndSet(expected, next))
+			{
+				// The leak detector holds a used entry only briefly.
+				if (expected != STATE_USED || state.get() != STATE_RECLAIMING)
+					return false;
+				Thread.yield();
+			}
+			pool.count(expected, -1);
+			pool.count(next, 1);
+			return true;
+		}
+		
+		/**
+		 * @return true if this is past its lifetime, false if not.
+		 */
+		private boolean isExpired()
+		{
+			return expiresAt != 0L && System.nanoTime() - expiresAt >= 0L;
+		}
+		
+		/**
+		 * Changes this entry's state to removed, whatever its current state.
+		 * @return true if changed, false if already removed.
+		 */
+		private boolean remove()
+		{
+			int previous = state.getAndSet(STATE_REMOVED);
+			if (previous == STATE_REMOVED)
+				return false;
+			pool.count(previous, -1);
+			return true;
+		}
+		
+	}
+	
+	/**
+	 * A named partition of a pool that limits how many of the pool's connections can be in use through it at the same time.
+	 * Connections retrieved through a partition are released to the pool as usual, through the partition or the pool.
+	 * <p>A partition has the same blocking retrieval methods as its pool. It has no asynchronous ones: 
+	 * waiting for the partition's limit takes a thread (see {@link SQLAbstractDAO#callAsync(SQLConnectionFunction, Executor)}).
+	 * @since 1.4.0
+	 * @see SQLPool#createPartition(String, int, boolean)
+	 */
+	public final class Partition
+	{
+		/** Partition name. */
+		private final String name;
+		/** Maximum amount of connections in use, not counting overflow. */
+		private final int maxConcurrency;
+		/** Can this use the pool's shared overflow? */
+		private final boolean overflow;
+		/** Permits for connections in use, not counting overflow. */
+		private final Semaphore permits;
+		
+		/** Amount of connections in use, including overflow. */
+		private final AtomicInteger usedCount;
+		/** Amount of overflow connections in use. */
+		private final AtomicInteger overflowCount;
+		/** Amount of threads waiting for a permit. */
+		private final AtomicInteger waitingCount;
+		/** Highest amount of used connections. */
+		private final AtomicInteger peakUsedCount;
+		/** Amount of connections retrieved. */
+		private final LongAdder acquireCount;
+		/** Amount of retrieval timeouts. */
+		private final LongAdder timeoutCount;
+		/** Connection retrieval times. */
+		private final SQLPoolMetrics.Recorder acquireWait;
+		
+		private Partition(String name, int maxConcurrency, boolean overflow)
+		{
+			this.name = name;
+			this.maxConcurrency = maxConcurrency;
+			this.overflow = overflow;
+			this.permits = new Semaphore(maxConcurrency, true);
+			this.usedCount = new AtomicInteger(0);
+			this.overflowCount = new AtomicInteger(0);
+			this.waitingCount = new AtomicInteger(0);
+			this.peakUsedCount = new AtomicInteger(0);
+			this.acquireCount = new LongAdder();
+			this.timeoutCount = new LongAdder();
+			this.acquireWait = new SQLPoolMetrics.Recorder();
+		}
+		
+		/**
+		 * @return this partition's name.
+		 */
+		public String getName()
+		{
+			return name;
+		}
+		
+		/**
+		 * @return the maximum amount of connections that can be in use through this partition, not counting overflow.
+		 */
+		public int getMaxConcurrency()
+		{
+			return maxConcurrency;
+		}
+		
+		/**
+		 * @return true if this partition can use the pool's shared partition overflow, false if not.
+		 */
+		public boolean isOverflow()
+		{
+			return overflow;
+		}
+		
+		/**
+		 * @return the pool that this is a partition of.
+		 */
+		public SQLPool getPool()
+		{
+			return SQLPool.this;
+		}
+		
+		/**
+		 * Retrieves a connection through this partition, passes it to the provided {@link SQLConnectionConsumer} function,
+		 * then returns it to the pool.
+		 * @param handler the consumer function that accepts the retrieved connection.
+		 * @throws InterruptedException	if an interrupt is thrown by the current thread waiting for an available connection. 
+		 * @throws SQLException if a connection cannot be re-created or re-established.
+		 */
+		@SuppressWarnings("overloads")
+		public void getConnectionAnd(SQLConnectionConsumer handler) throws InterruptedException, SQLException
+		{
+			try {
+				getConnectionAnd(0L, handler);
+			} catch (TimeoutException e) {
+				throw new RuntimeException(e); // Does not happen.
+			}
+		}
+		
+		/**
+		 * Retrieves a connection through this partition, passes it to the provided {@link SQLConnectionConsumer} function,
+		 * calls it, then returns it to the pool.
+		 * @param waitMillis the amount of time (in milliseconds) to wait for a connection.
+		 * @param handler the consumer function that accepts the retrieved connection.
+		 * @throws InterruptedException	if an interrupt is thrown by the current thread waiting for an available connection. 
+		 * @throws TimeoutException if the wait lapses and there are no available connections.
+		 * @throws SQLException if a connection cannot be re-created or re-established.
+		 */
+		@SuppressWarnings("overloads")
+		public void getConnectionAnd(long waitMillis, SQLConnectionConsumer handler) throws InterruptedException, TimeoutException, SQLException
+		{
+			getConnectionAndAccept(Priority.NORMAL, waitMillis, handler);
+		}
+		
+		/**
+		 * Retrieves a connection through this partition with a priority, passes it to the provided {@link SQLConnectionConsumer} function,
+		 * calls it, then returns it to the pool.
+		 * @param priority the priority of this request over other waiting requests in the pool.
+		 * @param waitMillis the amount of time (in milliseconds) to wait for a connection.
+		 * @param handler the consumer function that accepts the retrieved connection.
+		 * @throws InterruptedException	if an interrupt is thrown by the current thread waiting for an available connection. 
+		 * @throws TimeoutException if the wait lapses and there are no available connections.
+		 * @throws SQLException if a connection cannot be re-created or re-established.
+		 */
+		public void getConnectionAndAccept(Priority priority, long waitMillis, SQLConnectionConsumer handler) throws InterruptedException, TimeoutException, SQLException
+		{
+			SQLConnection conn = null;
+			try {
+				conn = getAvailableConnection(priority, waitMillis);
+				handler.accept(conn);
+			} finally {
+				if (conn != null)
+					releaseConnection(conn);
+			}	
+		}
+		
+		/**
+		 * Retrieves a connection through this partition, passes it to the provided {@link SQLConnectionFunction},
+		 * calls it, returns it to the pool, and returns the result.
+		 * @param <R> the return type.
+		 * @param handler the consumer function that accepts the retrieved connection and returns a value.
+		 * @return the return value of the handler function.
+		 * @throws InterruptedException	if an interrupt is thrown by the current thread waiting for an available connection. 
+		 * @throws SQLException if a connection cannot be re-created or re-established.
+		 */
+		@SuppressWarnings("overloads")
+		public <R> R getConnectionAnd(SQLConnectionFunction<R> handler) throws InterruptedException, SQLException
+		{
+			try {
+				return getConnectionAnd(0L, handler);
+			} catch (TimeoutException e) {
+				throw new RuntimeException(e); // Does not happen.
+			}
+		}
+		
+		/**
+		 * Retrieves a connection through this partition, passes it to the provided {@link SQLConnectionFunction},
+		 * calls it, returns it to the pool, and returns the result.
+		 * @param <R> the return type.
+		 * @param waitMillis the amount of time (in milliseconds) to wait for a connection.
+		 * @param handler the consumer function that accepts the retrieved connection and returns a value.
+		 * @return the return value of the handler function.
+		 * @throws InterruptedException	if an interrupt is thrown by the current thread waiting for an available connection. 
+		 * @throws TimeoutException if the wait lapses and there are no available connections.
+		 * @throws SQLException if a connection cannot be re-created or re-established.
+		 */
+		@SuppressWarnings("overloads")
+		public <R> R getConnectionAnd(long waitMillis, SQLConnectionFunction<R> handler) throws InterruptedException, TimeoutException, SQLException
+		{
+			return getConnectionAnd(Priority.NORMAL, waitMillis, handler);
+		}
+		
+		/**
+		 * Retrieves a connection through this partition with a priority, passes it to the provided {@link SQLConnectionFunction},
+		 * calls it, returns it to the pool, and returns the result.
+		 * @param <R> the return type.
+		 * @param priority the priority of this request over other waiting requests in the pool.
+		 * @param waitMillis the amount of time (in milliseconds) to wait for a connection.
+		 * @param handler the consumer function that accepts the retrieved connection and returns a value.
+		 * @return the return value of the handler function.
+		 * @throws InterruptedException	if an interrupt is thrown by the current thread waiting for an available connection. 
+		 * @throws TimeoutException if the wait lapses and there are no available connections.
+		 * @throws SQLException if a connection cannot be re-created or re-established.
+		 */
+		public <R> R getConnectionAnd(Priority priority, long waitMillis, SQLConnectionFunction<R> handler) throws InterruptedException, TimeoutException, SQLException
+		{
+			SQLConnection conn = null;
+			try {
+				conn = getAvailableConnection(priority, waitMillis);
+				return handler.apply(conn);
+			} finally {
+				if (conn != null)
+					releaseConnection(conn);
+			}	
+		}
+		
+		/**
+		 * Retrieves an available connection from the pool through this partition.
+		 * @return a connection to use, which is released to the pool.
+		 * @throws InterruptedException	if an interrupt is thrown by the current thread waiting for an available connection. 
+		 * @throws SQLException if a connection cannot be re-created or re-established.
+		 */
+		public SQLConnection getAvailableConnection() throws InterruptedException, SQLException
+		{
+			try {
+				return getAvailableConnection(0L);
+			} catch (TimeoutException e) {
+				return null; // Does not happen.
+			}
+		}
+		
+		/**
+		 * Retrieves an available connection from the pool through this partition.
+		 * @param waitMillis the amount of time (in milliseconds) to wait for a connection, in total.
+		 * @return a connection to use, which is released to the pool.
+		 * @throws InterruptedException	if an interrupt is thrown by the current thread waiting for an available connection. 
+		 * @throws TimeoutException if the wait lapses and there are no available connections.
+		 * @throws SQLException if a connection cannot be re-created or re-established.
+		 */
+		public SQLConnection getAvailableConnection(long waitMillis) throws InterruptedException, TimeoutException, SQLException
+		{
+			return getAvailableConnection(Priority.NORMAL, waitMillis);
+		}
+		
+		/**
+		 * Retrieves an available connection from the pool through this partition.
+		 * If this partition is at its maximum (and cannot use overflow), this first waits for a connection 
+		 * retrieved through this partition to be released, then waits for a connection from the pool.
+		 * @param priority the priority of this request over other waiting requests in the pool.
+		 * @param waitMillis the amount of time (in milliseconds) to wait for a connection, in total.
+		 * @return a connection to use, which is released to the pool.
+		 * @throws InterruptedException	if an interrupt is thrown by the current thread waiting for an available connection. 
+		 * @throws TimeoutException if the wait lapses and there are no available connections.
+		 * @throws SQLException if a connection cannot be re-created or re-established.
+		 * @see SQLPool#getAvailableConnection(Priority, long)
+		 */
+		public SQLConnection getAvailableConnection(Priority priority, long waitMillis) throws InterruptedException, TimeoutException, SQLException
+		{
+			long start = System.nanoTime();
+			boolean usedOverflow = acquire(waitMillis);
+			SQLConnection out = null;
+			try {
+				long remaining = 0L;
+				if (waitMillis > 0L)
+					remaining = Math.max(waitMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), 1L);
+				out = SQLPool.this.getAvailableConnection(priority.ordinal(), remaining, this, usedOverflow);
+			} catch (TimeoutException e) {
+				timeoutCount.increment();
+				throw e;
+			} finally {
+				if (out == null)
+					release(usedOverflow);
+			}
+			
+			acquireWait.record(System.nanoTime() - start);
+			acquireCount.increment();
+			return out;
+		}
+		
+		/**
+		 * Releases a connection back to the pool.
+		 * Same as {@link SQLPool#releaseConnection(SQLConnection)}.
+		 * @param connection the connection to release.
+		 */
+		public void releaseConnection(SQLConnection connection)
+		{
+			SQLPool.this.releaseConnection(connection);
+		}
+		
+		/**
+		 * @return a snapshot of this partition's metrics.
+		 */
+		public SQLPoolMetrics.PartitionMetrics getMetrics()
+		{
+			return new SQLPoolMetrics.PartitionMetrics(
+				name,
+				maxConcurrency,
+				usedCount.get(),
+				overflowCount.get(),
+				waitingCount.get(),
+				peakUsedCount.get(),
+				acquireCount.sum(),
+				timeoutCount.sum(),
+				acquireWait.snapshot()
+			);
+		}
+		
+		// Takes a permit, or an overflow permit, waiting for a permit if neither is available. Returns true if overflow.
+		private boolean acquire(long waitMillis) throws InterruptedException, TimeoutException
+		{
+			boolean usedOverflow = false;
+			if (!permits.tryAcquire())
+			{
+				if (overflow && partitionOverflow.tryAcquire())
+				{
+					usedOverflow = true;
+				}
+				else
+				{
+					waitingCount.incrementAndGet();
+					try {
+						if (waitMillis <= 0L)
+							permits.acquire();
+						else if (!permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS))
+						{
+							timeoutCount.increment();
+							throw new TimeoutException("no available connections in partition \"" + name + "\".");
+						}
+					} finally {
+						waitingCount.decrementAndGet();
+					}
+				}
+			}
+			
+			if (usedOverflow)
+				overflowCount.incrementAndGet();
+			int used = usedCount.incrementAndGet();
+			int peak;
+			while (used > (peak = peakUsedCount.get()) && !peakUsedCount.compareAndSet(peak, used))
+				;
+			return usedOverflow;
+		}
+		
+		// Gives back a permit.
+		private void release(boolean usedOverflow)
+		{
+			usedCount.decrementAndGet();
+			if (usedOverflow)
+			{
+				overflowCount.decrementAndGet();
+				partitionOverflow.release();
+			}
+			else
+			{
+				permits.release();
+			}
+		}
+	}
+	
+	/**
+	 * Priorities for retrieving connections from a pool.
+	 * Waiting requests with a higher priority are handed released connections before ones with a lower priority.
+	 * @since 1.4.0
+	 * @see Options#setPriorityLimit(Priority, int)
+	 */
+	public enum Priority
+	{
+		/** For requests that should not wait behind others, like user-facing requests. */
+		HIGH,
+		
+		/** The priority of requests that do not specify one. */
+		NORMAL,
+		
+		/** For requests that can wait, like background jobs. */
+		LOW;
+	}
+	
+	/**
+	 * Sizing options for a pool.
+	 * @since 1.4.0
+	 */
+	public static class Options
+	{
+		/** Default maximum amount of connections. */
+		public static final int DEFAULT_MAX_SIZE = 10;
+		/** Default idle connection timeout, in milliseconds (10 minutes). */
+		public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 10L * 60L * 1000L;
+		/** Default validation timeout, in seconds. */
+		public static final int DEFAULT_VALIDATION_TIMEOUT_SECONDS = 5;
+		
+		/** Minimum amount of idle connections. */
+		private int minIdle;
+		/** Maximum amount of connections. */
+		private int maxSize;
+		/** Idle connection timeout, in milliseconds. */
+		private long idleTimeoutMillis;
+		/** Maximum amount of initial connections to create at the same time. */
+		private int warmUpThreads;
+		/** Time between validations of an available connection, in milliseconds. */
+		private long validationIntervalMillis;
+		/** Validation timeout, in seconds. */
+		private int validationTimeoutSeconds;
+		/** Validation query. */
+		private String validationQuery;
+		/** Maximum connection lifetime, in milliseconds. */
+		private long maxLifetimeMillis;
+		/** Leak detection threshold, in milliseconds. */
+		private long leakDetectionThresholdMillis;
+		/** Stack trace capture interval. */
+		private int leakStackTraceInterval;
+		/** Reclaim leaked connections? */
+		private boolean reclaimLeakedConnections;
+		/** Maximum amount of connections in use per priority (0 is no limit). */
+		private int[] priorityLimits;
+		/** Shared partition overflow. */
+		private int partitionOverflow;
+		/** Time between adaptive sizing adjustments, in milliseconds. */
+		private long adaptiveSizingIntervalMillis;
+		
+		/**
+		 * Creates new options with no minimum idle connections, 
+		 * a maximum of {@value #DEFAULT_MAX_SIZE} connections, 
+		 * and an idle timeout of {@value #DEFAULT_IDLE_TIMEOUT_MILLIS} milliseconds.
+		 */
+		public Options()
+		{
+			this(0, DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT_MILLIS);
+		}
+		
+		/**
+		 * Creates new options.
+		 * @param minIdle the minimum amount of idle connections to keep open.
+		 * @param maxSize the maximum amount of connections.
+		 * @param idleTimeoutMillis the time (in milliseconds) until an idle connection above the minimum is closed. If 0, they are never closed.
+		 * @throws IllegalArgumentException if any value is less than 0.
+		 */
+		public Options(int minIdle, int maxSize, long idleTimeoutMillis)
+		{
+			setMinIdle(minIdle);
+			setMaxSize(maxSize);
+			setIdleTimeoutMillis(idleTimeoutMillis);
+			setWarmUpThreads(1);
+			setValidationIntervalMillis(0L);
+			setValidationTimeoutSeconds(DEFAULT_VALIDATION_TIMEOUT_SECONDS);
+			setValidationQuery(null);
+			setMaxLifetimeMillis(0L);
+			setLeakDetectionThresholdMillis(0L);
+			setLeakStackTraceInterval(1);
+			setReclaimLeakedConnections(false);
+			this.priorityLimits = new int[PRIORITIES.length];
+			setPartitionOverflow(0);
+			setAdaptiveSizingIntervalMillis(0L);
+		}
+		
+		/**
+		 * Sets the minimum amount of idle connections to keep open.
+		 * These are created when the pool is created.
+		 * @param minIdle the amount of connections.
+		 * @throws IllegalArgumentException if minIdle is less than 0.
+		 */
+		public void setMinIdle(int minIdle)
+		{
+			if (minIdle < 0)
+				throw new IllegalArgumentException("minIdle cannot be less than 0.");
+			this.minIdle = minIdle;
+		}
+		
+		/**
+		 * @return the minimum amount of idle connections to keep open.
+		 */
+		public int getMinIdle()
+		{
+			return minIdle;
+		}
+		
+		/**
+		 * Sets the maximum amount of connections.
+		 * @param maxSize the amount of connections.
+		 * @throws IllegalArgumentException if maxSize is less than 0.
+		 */
+		public void setMaxSize(int maxSize)
+		{
+			if (maxSize < 0)
+				throw new IllegalArgumentException("maxSize cannot be less than 0.");
+			this.maxSize = maxSize;
+		}
+		
+		/**
+		 * @return the maximum amount of connections.
+		 */
+		public int getMaxSize()
+		{
+			return maxSize;
+		}
+		
+		/**
+		 * Sets the time until an idle connection above the minimum amount of idle connections is closed.
+		 * @param idleTimeoutMillis the time in milliseconds. If 0, idle connections are never closed.
+		 * @throws IllegalArgumentException if idleTimeoutMillis is less than 0.
+		 */
+		public void setIdleTimeoutMillis(long idleTimeoutMillis)
+		{
+			if (idleTimeoutMillis < 0L)
+				throw new IllegalArgumentException("idleTimeoutMillis cannot be less than 0.");
+			this.idleTimeoutMillis = idleTimeoutMillis;
+		}
+		
+		/**
+		 * @return the time (in milliseconds) until an idle connection above the minimum amount of idle connections is closed.
+		 */
+		public long getIdleTimeoutMillis()
+		{
+			return idleTimeoutMillis;
+		}
+		
+		/**
+		 * Sets the maximum amount of the minimum idle connections to establish at the same time when the pool is created.
+		 * If more than 1, they are created on a temporary thread pool of this size, and the first failure 
+		 * fails the pool creation. The default is 1 (one after the other, on the creating thread).
+		 * @param warmUpThreads the amount of threads.
+		 * @throws IllegalArgumentException if warmUpThreads is less than 1.
+		 */
+		public void setWarmUpThreads(int warmUpThreads)
+		{
+			if (warmUpThreads < 1)
+				throw new IllegalArgumentException("warmUpThreads cannot be less than 1.");
+			this.warmUpThreads = warmUpThreads;
+		}
+		
+		/**
+		 * @return the maximum amount of the minimum idle connections to establish at the same time when the pool is created.
+		 */
+		public int getWarmUpThreads()
+		{
+			return warmUpThreads;
+		}
+		
+		/**
+		 * Sets the time between background validations of each available connection.
+		 * Connections that fail validation are closed and replaced.
+		 * @param validationIntervalMillis the time in milliseconds. If 0, connections are not validated (the default).
+		 * @throws IllegalArgumentException if validationIntervalMillis is less than 0.
+		 * @see #setValidationQuery(String)
+		 */
+		public void setValidationIntervalMillis(long validationIntervalMillis)
+		{
+			if (validationIntervalMillis < 0L)
+				throw new IllegalArgumentException("validationIntervalMillis cannot be less than 0.");
+			this.validationIntervalMillis = validationIntervalMillis;
+		}
+		
+		/**
+		 * @return the time (in milliseconds) between background validations of each available connection.
+		 */
+		public long getValidationIntervalMillis()
+		{
+			return validationIntervalMillis;
+		}
+		
+		/**
+		 * Sets the time to wait for a connection to be validated before it is considered broken.
+		 * The default is {@value #DEFAULT_VALIDATION_TIMEOUT_SECONDS} seconds.
+		 * @param validationTimeoutSeconds the time in seconds. If 0, there is no timeout.
+		 * @throws IllegalArgumentException if validationTimeoutSeconds is less than 0.
+		 */
+		public void setValidationTimeoutSeconds(int validationTimeoutSeconds)
+		{
+			if (validationTimeoutSeconds < 0)
+				throw new IllegalArgumentException("validationTimeoutSeconds cannot be less than 0.");
+			this.validationTimeoutSeconds = validationTimeoutSeconds;
+		}
+		
+		/**
+		 * @return the time (in seconds) to wait for a connection to be validated.
+		 */
+		public int getValidationTimeoutSeconds()
+		{
+			return validationTimeoutSeconds;
+		}
+		
+		/**
+		 * Sets the query used to validate connections. 
+		 * A connection is valid if the query executes without error.
+		 * @param validationQuery the query, or null to use {@link java.sql.Connection#isValid(int)} instead (the default).
+		 */
+		public void setValidationQuery(String validationQuery)
+		{
+			this.validationQuery = validationQuery;
+		}
+		
+		/**
+		 * @return the query used to validate connections, or null if {@link java.sql.Connection#isValid(int)} is used.
+		 */
+		public String getValidationQuery()
+		{
+			return validationQuery;
+		}
+		
+		/**
+		 * Sets the maximum lifetime of a connection.
+		 * A connection past its lifetime is closed when it is next released (or found available in the background), 
+		 * and is replaced in the background if needed. Each connection's lifetime is shortened by a random amount
+		 * of up to a quarter, so that connections made at the same time are not all replaced at the same time.
+		 * @param maxLifetimeMillis the time in milliseconds. If 0, connections are kept indefinitely (the default).
+		 * @throws IllegalArgumentException if maxLifetimeMillis is less than 0.
+		 */
+		public void setMaxLifetimeMillis(long maxLifetimeMillis)
+		{
+			if (maxLifetimeMillis < 0L)
+				throw new IllegalArgumentException("maxLifetimeMillis cannot be less than 0.");
+			this.maxLifetimeMillis = maxLifetimeMillis;
+		}
+		
+		/**
+		 * @return the maximum lifetime of a connection, in milliseconds.
+		 */
+		public long getMaxLifetimeMillis()
+		{
+			return maxLifetimeMillis;
+		}
+		
+		/**
+		 * Sets the time that a connection can be kept out of the pool before it is reported as a possible leak.
+		 * Reports are logged as warnings to this class's {@link java.util.logging.Logger}, once per retrieval,
+		 * with the name of the thread that retrieved it and (if captured) the stack trace of where it was retrieved.
+		 * @param leakDetectionThresholdMillis the time in milliseconds. If 0, leaks are not detected (the default).
+		 * @throws IllegalArgumentException if leakDetectionThresholdMillis is less than 0.
+		 * @see #setLeakStackTraceInterval(int)
+		 * @see #setReclaimLeakedConnections(boolean)
+		 */
+		public void setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis)
+		{
+			if (leakDetectionThresholdMillis < 0L)
+				throw new IllegalArgumentException("leakDetectionThresholdMillis cannot be less than 0.");
+			this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+		}
+		
+		/**
+		 * @return the time (in milliseconds) that a connection can be kept out of the pool before it is reported as a possible leak.
+		 */
+		public long getLeakDetectionThresholdMillis()
+		{
+			return leakDetectionThresholdMillis;
+		}
+		
+		/**
+		 * Sets how often the stack trace of a retrieval is captured for leak reports, if leak detection is on.
+		 * Capturing a stack trace is relatively expensive, so busy pools may want to capture only a sample.
+		 * @param leakStackTraceInterval capture about one in this many retrievals. If 1, every retrieval is captured (the default). If 0, none are.
+		 * @throws IllegalArgumentException if leakStackTraceInterval is less than 0.
+		 */
+		public void setLeakStackTraceInterval(int leakStackTraceInterval)
+		{
+			if (leakStackTraceInterval < 0)
+				throw new IllegalArgumentException("leakStackTraceInterval cannot be less than 0.");
+			this.leakStackTraceInterval = leakStackTraceInterval;
+		}
+		
+		/**
+		 * @return how often the stack trace of a retrieval is captured: about one in this many retrievals.
+		 */
+		public int getLeakStackTraceInterval()
+		{
+			return leakStackTraceInterval;
+		}
+		
+		/**
+		 * Sets whether connections reported as leaks are also closed and removed from the pool (and replaced if needed).
+		 * The borrower's further use of the connection will fail, and releasing it will do nothing.
+		 * @param reclaimLeakedConnections true to reclaim leaked connections, false to only report them (the default).
+		 */
+		public void setReclaimLeakedConnections(boolean reclaimLeakedConnections)
+		{
+			this.reclaimLeakedConnections = reclaimLeakedConnections;
+		}
+		
+		/**
+		 * @return true if connections reported as leaks are closed and removed from the pool, false if not.
+		 */
+		public boolean isReclaimLeakedConnections()
+		{
+			return reclaimLeakedConnections;
+		}
+		
+		/**
+		 * Sets the maximum amount of connections that requests of a priority can have in use at the same time.
+		 * Requests past the limit wait until a connection of the same priority is released, even if other connections are available,
+		 * so that a limited priority (like {@link Priority#LOW} for background jobs) cannot take more than its share of the pool.
+		 * @param priority the priority.
+		 * @param maxConnections the maximum amount of connections. If 0, there is no limit (the default).
+		 * @throws IllegalArgumentException if maxConnections is less than 0.
+		 */
+		public void setPriorityLimit(Priority priority, int maxConnections)
+		{
+			if (maxConnections < 0)
+				throw new IllegalArgumentException("maxConnections cannot be less than 0.");
+			this.priorityLimits[priority.ordinal()] = maxConnections;
+		}
+		
+		/**
+		 * @param priority the priority.
+		 * @return the maximum amount of connections that requests of a priority can have in use at the same time, or 0 if there is no limit.
+		 */
+		public int getPriorityLimit(Priority priority)
+		{
+			return priorityLimits[priority.ordinal()];
+		}
+		
+		/**
+		 * Sets the amount of connections that partitions created with overflow can use past their maximums, shared among them.
+		 * @param partitionOverflow the amount of connections. If 0, partitions cannot go past their maximums (the default).
+		 * @throws IllegalArgumentException if partitionOverflow is less than 0.
+		 * @see SQLPool#createPartition(String, int, boolean)
+		 */
+		public void setPartitionOverflow(int partitionOverflow)
+		{
+			if (partitionOverflow < 0)
+				throw new IllegalArgumentException("partitionOverflow cannot be less than 0.");
+			this.partitionOverflow = partitionOverflow;
+		}
+		
+		/**
+		 * @return the amount of connections that partitions created with overflow can use past their maximums, shared among them.
+		 */
+		public int getPartitionOverflow()
+		{
+			return partitionOverflow;
+		}
+		
+		/**
+		 * Sets the time between adjustments of the pool's size limit, if the pool sizes itself.
+		 * <p>A pool that sizes itself keeps a size limit between its minimum (or 1) and its maximum size, starting at the maximum,
+		 * and adjusts it at each interval from what it observed since the last one:
+		 * <ul>
+		 * <li>If the mean time that connections were in use rose well past its usual time (a sign that the database is saturated),
+		 * the limit is decreased by a quarter.</li>
+		 * <li>Otherwise, if retrievals timed out, or the pool was full and the mean retrieval wait is a large part of the usual time in use,
+		 * the limit is increased by the amount of waiting threads (at least 1, at most doubling it).</li>
+		 * <li>Otherwise, if fewer connections were in use than the limit allows, the limit is decreased by 1.</li>
+		 * </ul>
+		 * Connections past a lowered limit are closed when they are released or found available.
+		 * The current limit is reported in {@link SQLPoolMetrics#getSizeLimit()}.
+		 * @param adaptiveSizingIntervalMillis the time in milliseconds. If 0, the pool does not size itself (the default).
+		 * @throws IllegalArgumentException if adaptiveSizingIntervalMillis is less than 0.
+		 */
+		public void setAdaptiveSizingIntervalMillis(long adaptiveSizingIntervalMillis)
+		{
+			if (adaptiveSizingIntervalMillis < 0L)
+				throw new IllegalArgumentException("adaptiveSizingIntervalMillis cannot be less than 0.");
+			this.adaptiveSizingIntervalMillis = adaptiveSizingIntervalMillis;
+		}
+		
+		/**
+		 * @return the time (in milliseconds) between adjustments of the pool's size limit, or 0 if the pool does not size itself.
+		 */
+		public long getAdaptiveSizingIntervalMillis()
+		{
+			return adaptiveSizingIntervalMillis;
+		}
+	}
+	
+	/**
+	 * Adjusts the size limit from the retrieval waits and usage times since the last adjustment:
+	 * additive increase while retrievals wait, multiplicative decrease when usage times rise,
+	 * and gradual decrease while connections go unused. Only run by one thread at a time.
+	 */
+	private class AdaptiveSizer implements Runnable
+	{
+		/** Smallest limit. */
+		private final int minLimit;
+		/** Totals at the last adjustment. */
+		private long lastAcquireCount;
+		private long lastAcquireNanos;
+		private long lastUsageCount;
+		private long lastUsageNanos;
+		private long lastTimeoutCount;
+		/** Usual mean usage time, in nanoseconds (0 if not known yet). */
+		private double baselineUsageNanos;
+		
+		private AdaptiveSizer()
+		{
+			this.minLimit = Math.max(minIdle, 1);
+			this.lastAcquireCount = acquireWait.getCount();
+			this.lastAcquireNanos = acquireWait.getTotalNanos();
+			this.lastUsageCount = usage.getCount();
+			this.lastUsageNanos = usage.getTotalNanos();
+			this.lastTimeoutCount = timeoutCount.sum();
+			this.baselineUsageNanos = 0.0;
+		}
+		
+		@Override
+		public void run()
+		{
+			long acquires = acquireWait.getCount(), acquireNanos = acquireWait.getTotalNanos();
+			long usages = usage.getCount(), usageNanos = usage.getTotalNanos();
+			long timeouts = timeoutCount.sum();
+			long intervalAcquires = acquires - lastAcquireCount;
+			long intervalUsages = usages - lastUsageCount;
+			double meanWaitNanos = intervalAcquires > 0L ? (double)(acquireNanos - lastAcquireNanos) / intervalAcquires : 0.0;
+			double meanUsageNanos = intervalUsages > 0L ? (double)(usageNanos - lastUsageNanos) / intervalUsages : 0.0;
+			boolean timedOut = timeouts > lastTimeoutCount;
+			lastAcquireCount = acquires;
+			lastAcquireNanos = acquireNanos;
+			lastUsageCount = usages;
+			lastUsageNanos = usageNanos;
+			lastTimeoutCount = timeouts;
+			int peakUsed = intervalPeakUsedCount.getAndSet(usedCount.get());
+			
+			boolean latencyRising = false;
+			if (intervalUsages > 0L)
+			{
+				if (baselineUsageNanos == 0.0 || meanUsageNanos < baselineUsageNanos)
+					baselineUsageNanos = meanUsageNanos;
+				else
+				{
+					latencyRising = meanUsageNanos > baselineUsageNanos * ADAPTIVE_LATENCY_TOLERANCE;
+					baselineUsageNanos += (meanUsageNanos - baselineUsageNanos) * ADAPTIVE_BASELINE_DRIFT;
+				}
+			}
+			
+			int limit = sizeLimit;
+			int waiting = waitingCount.get();
+			int next;
+			if (latencyRising)
+				next = (int)(limit * ADAPTIVE_DECREASE_FACTOR);
+			else if (timedOut || (peakUsed >= limit && intervalAcquires > 0L && meanWaitNanos > baselineUsageNanos * ADAPTIVE_WAIT_RATIO))
+				next = limit + Math.max(Math.min(waiting, limit), 1);
+			else if (peakUsed < limit - 1 && waiting == 0)
+				next = limit - 1;
+			else
+				next = limit;
+			
+			next = Math.max(Math.min(next, maxSize), minLimit);
+			if (next == limit)
+				return;
+			
+			sizeLimit = next;
+			if (LOGGER.isLoggable(Level.FINE))
+				LOGGER.fine("Pool size limit changed from " + limit + " to " + next + ".");
+			if (next > limit)
+			{
+				// Serve waiting threads with the new room.
+				for (int i = 0; i < waiting && totalCount.get() < next; i++)
+					grow();
+			}
+			else
+			{
+				// Close the least recently used available connections past the new limit.
+				Entry entry;
+				while (totalCount.get() > next && (entry = availableConnections.pollLast()) != null)
+					removeEntry(entry, Entry.STATE_AVAILABLE);
+			}
+		}
+	}
+	
+	/**
+	 * The management bean, reading the pool's live counters.
+	 */
+	private class MXBean implements SQLPoolMXBean
+	{
+		@Override
+		public int getAvailableConnectionCount()
+		{
+			return availableCount.get();
+		}
+		
+		@Override
+		public int getUsedConnectionCount()
+		{
+			return usedCount.get();
+		}
+		
+		@Override
+		public int getWaitingThreadCount()
+		{
+			return waitingCount.get();
+		}
+		
+		@Override
+		public int getPeakUsedConnectionCount()
+		{
+			return peakUsedCount.get();
+		}
+		
+		@Override
+		public int getSizeLimit()
+		{
+			return sizeLimit;
+		}
+		
+		@Override
+		public long getAcquireCount()
+		{
+			return acquireCount.sum();
+		}
+		
+		@Override
+		public long getTimeoutCount()
+		{
+			return timeoutCount.sum();
+		}
+		
+		@Override
+		public long getCreatedConnectionCount()
+		{
+			return createdCount.sum();
+		}
+		
+		@Override
+		public long getFailedConnectionCount()
+		{
+			return failedCount.sum();
+		}
+		
+		@Override
+		public long getClosedConnectionCount()
+		{
+			return closedCount.sum();
+		}
+		
+		@Override
+		public double getAcquireWaitMillis50()
+		{
+			return toMillis(acquireWait.snapshot().getPercentileNanos(50.0));
+		}
+		
+		@Override
+		public double getAcquireWaitMillis95()
+		{
+			return toMillis(acquireWait.snapshot().getPercentileNanos(95.0));
+		}
+		
+		@Override
+		public double getAcquireWaitMillis99()
+		{
+			return toMillis(acquireWait.snapshot().getPercentileNanos(99.0));
+		}
+		
+		@Override
+		public double getAcquireWaitMillisMax()
+		{
+			return toMillis(acquireWait.snapshot().getMaxNanos());
+		}
+		
+		@Override
+		public double getUsageMillis50()
+		{
+			return toMillis(usage.snapshot().getPercentileNanos(50.0));
+		}
+		
+		@Override
+		public double getUsageMillis95()
+		{
+			return toMillis(usage.snapshot().getPercentileNanos(95.0));
+		}
+		
+		@Override
+		public double getUsageMillis99()
+		{
+			return toMillis(usage.snapshot().getPercentileNanos(99.0));
+		}
+		
+		@Override
+		public double getUsageMillisMax()
+		{
+			return toMillis(usage.snapshot().getMaxNanos());
+		}
+		
+		private double toMillis(long nanos)
+		{
+			return nanos / 1000000.0;
+		}
+	}
+	
+	/**
+	 * Makes daemon threads for the background tasks.
+	 */
+	private static class HousekeeperThreadFactory implements ThreadFactory
+	{
+		@Override
+		public Thread newThread(Runnable runnable)
+		{
+			Thread out = new Thread(runnable, "SQLPool-Housekeeper-" + THREAD_COUNTER.incrementAndGet());
+			out.setDaemon(true);
+			return out;
+		}
+	}
+	
+	/**
+	 * A request for a connection that does not block a thread.
+	 * The handler is called on the request's executor once a connection is taken.
+	 * @param <R> the handler's return type.
+	 */
+	private class AsyncRequest<R>
+	{
+		/** The priority's index. */
+		private final int lane;
+		/** Called with the retrieved connection. */
+		private final SQLConnectionFunction<R> handler;
+		/** If true, the connection is released after the handler is called. */
+		private final boolean release;
+		/** Calls the handler. */
+		private final Executor executor;
+		/** Completed with the handler's result. */
+		private final CompletableFuture<R> future;
+		/** When this was made, from {@link System#nanoTime()}. */
+		private final long start;
+		/** When this stops waiting, from {@link System#nanoTime()}, if timed. */
+		private final long deadline;
+		/** The current place in line, if waiting. */
+		private volatile Waiter waiter;
+		/** The scheduled timeout, if waiting. */
+		private volatile ScheduledFuture<?> timeout;
+		
+		private AsyncRequest(int lane, long waitMillis, SQLConnectionFunction<R> handler, boolean release, Executor executor)
+		{
+			this.lane = lane;
+			this.handler = handler;
+			this.release = release;
+			this.executor = executor;
+			this.future = new CompletableFuture<>();
+			this.start = System.nanoTime();
+			this.deadline = waitMillis > 0L ? start + TimeUnit.MILLISECONDS.toNanos(waitMillis) : 0L;
+			this.waiter = null;
+			this.timeout = null;
+			this.future.whenComplete((result, exception) -> {
+				if (future.isCancelled())
+					abandon(false);
+			});
+		}
+		
+		/**
+		 * Takes an available connection, or gets in line for one.
+		 */
+		private void acquire()
+		{
+			if (closed)
+			{
+				fail(new IllegalStateException("This pool was closed."));
+				return;
+			}
+			
+			Entry entry = null;
+			// Do not cut in front of waiting threads of the same or higher priority.
+			if (!hasWaiters(lane) && reserve(lane) && (entry = availableConnections.pollFirst()) == null)
+				unreserve(lane);
+			if (entry != null)
+			{
+				dispatch(entry);
+				return;
+			}
+			
+			// Do not wait for connections that cannot be made.
+			SQLCircuitBreaker.OpenException rejection;
+			if (circuitBreaker != null && (rejection = circuitBreaker.getRejection()) != null)
+			{
+				fail(rejection);
+				return;
+			}
+			
+			if (isBelowLimit(lane))
+				grow();
+			Waiter waiter = new Waiter(this);
+			this.waiter = waiter;
+			waitingCount.incrementAndGet();
+			waiters[lane].add(waiter);
+			
+			// A connection may have been released, or the pool closed, before this was in line.
+			if (reserve(lane))
+			{
+				if ((entry = availableConnections.pollFirst()) == null)
+					unreserve(lane);
+				else if (waiter.cancel())
+				{
+					waiters[lane].remove(waiter);
+					waitingCount.decrementAndGet();
+					dispatch(entry);
+					return;
+				}
+				else
+				{
+					// Handed a connection in the meantime - keep that one.
+					unreserve(lane);
+					offerConnection(entry);
+					return;
+				}
+			}
+			if (closed && waiter.cancel())
+			{
+				waiters[lane].remove(waiter);
+				fail(new IllegalStateException("This pool was closed."));
+				return;
+			}
+			if (circuitBreaker != null && circuitBreaker.getState() == SQLCircuitBreaker.State.OPEN)
+			{
+				reject();
+				return;
+			}
+			
+			if (deadline != 0L)
+			{
+				try {
+					timeout = getHousekeeper().schedule(() -> abandon(true), Math.max(deadline - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+				} catch (RejectedExecutionException e) {
+					// Closed - the waiter is failed by close().
+				}
+			}
+		}
+		
+		/**
+		 * Called when a connection is handed to this request's waiter.
+		 * @param entry the connection entry.
+		 */
+		private void handOff(Entry entry)
+		{
+			waitingCount.decrementAndGet();
+			ScheduledFuture<?> timeout = this.timeout;
+			if (timeout != null)
+				timeout.cancel(false);
+			dispatch(entry);
+		}
+		
+		/**
+		 * Stops waiting, if still waiting.
+		 * @param timedOut if true, the future is completed with a {@link TimeoutException}.
+		 */
+		private void abandon(boolean timedOut)
+		{
+			Waiter waiter = this.waiter;
+			if (waiter == null || !waiter.cancel())
+				return;
+			waiters[lane].remove(waiter);
+			if (timedOut)
+			{
+				timeoutCount.increment();
+				fail(new TimeoutException("no available connections."));
+			}
+			else
+				waitingCount.decrementAndGet();
+		}
+		
+		/**
+		 * Stops waiting, if still waiting, and completes the future exceptionally if the circuit breaker is open
+		 * (but not while a trial is in progress).
+		 */
+		private void reject()
+		{
+			SQLCircuitBreaker.OpenException rejection = circuitBreaker.getState() == SQLCircuitBreaker.State.OPEN ? circuitBreaker.getRejection() : null;
+			Waiter waiter = this.waiter;
+			if (rejection == null || waiter == null || !waiter.cancel())
+				return;
+			waiters[lane].remove(waiter);
+			ScheduledFuture<?> timeout = this.timeout;
+			if (timeout != null)
+				timeout.cancel(false);
+			fail(rejection);
+		}
+		
+		/**
+		 * Stops waiting (after the waiter was cancelled), and completes the future exceptionally.
+		 * @param exception the exception.
+		 */
+		private void fail(Throwable exception)
+		{
+			if (waiter != null)
+				waitingCount.decrementAndGet();
+			future.completeExceptionally(exception);
+		}
+		
+		/**
+		 * Takes a connection (reserved for this request's priority) and calls the handler with it on the executor.
+		 * @param entry the connection entry.
+		 */
+		private void dispatch(Entry entry)
+		{
+			try {
+				executor.execute(() -> take(entry));
+			} catch (RejectedExecutionException e) {
+				unreserve(lane);
+				offerConnection(entry);
+				future.completeExceptionally(e);
+			}
+		}
+		
+		// Takes a connection and calls the handler with it (called on the executor).
+		private void take(Entry entry)
+		{
+			if (future.isDone())
+			{
+				// Cancelled in the meantime.
+				unreserve(lane);
+				offerConnection(entry);
+				return;
+			}
+			if (!entry.setState(Entry.STATE_AVAILABLE, Entry.STATE_USED))
+			{
+				unreserve(lane);
+				future.completeExceptionally(new IllegalStateException("This pool was closed."));
+				return;
+			}
+			
+			boolean broken;
+			try {
+				broken = entry.connection.isClosed();
+			} catch (SQLException e) {
+				broken = true;
+			}
+			
+			if (broken)
+			{
+				// Replace closed connections in the background and try the next one.
+				removeEntry(entry, Entry.STATE_USED);
+				releaseReserved(lane);
+				replenish();
+				waiter = null;
+				acquire();
+				return;
+			}
+			
+			long now = System.nanoTime();
+			entry.borrowed = now;
+			entry.priority = lane;
+			if (leakThresholdNanos > 0L)
+				entry.setBorrower(Thread.currentThread(), leakStackTraceInterval > 0 && ThreadLocalRandom.current().nextInt(leakStackTraceInterval) == 0 ? new Throwable("Connection retrieved here.") : null);
+			acquireWait.record(now - start);
+			acquireCount.increment();
+			
+			SQLConnection connection = entry.connection;
+			R result;
+			try {
+				result = handler.apply(connection);
+			} catch (Throwable t) {
+				releaseConnection(connection);
+				future.completeExceptionally(t);
+				return;
+			}
+			
+			// Released before completing, so that the future's dependents can use the connection again.
+			if (release)
+			{
+				releaseConnection(connection);
+				future.complete(result);
+			}
+			else if (!future.complete(result))
+			{
+				releaseConnection(connection);
+			}
+		}
+	}
+	
+	/**
+	 * A thread waiting in line for a connection.
+	 */
+	private static class Waiter
+	{
+		/** Marks a waiter that stopped waiting. */
+		private static final Object CANCELLED = new Object();
+		
+		/** The waiting thread, or null if asynchronous. */
+		private final Thread thread;
+		/** The asynchronous request, or null if a thread is waiting. */
+		private final AsyncRequest<?> request;
+		/** The handed-off connection entry, or {@link #CANCELLED}. */
+		private final AtomicReference<Object> slot;
+		
+		private Waiter(Thread thread)
+		{
+			this.thread = thread;
+			this.request = null;
+			this.slot = new AtomicReference<>(null);
+		}
+		
+		private Waiter(AsyncRequest<?> request)
+		{
+			this.thread = null;
+			this.request = request;
+			this.slot = new AtomicReference<>(null);
+		}
+		
+		/**
+		 * Hands this waiter a connection and wakes it (or dispatches its request), if it is still waiting.
+		 * @param entry the connection entry.
+		 * @return true if handed off, false if this waiter stopped waiting.
+		 */
+		private boolean offer(Entry entry)
+		{
+			if (!slot.compareAndSet(null, entry))
+				return false;
+			if (request != null)
+				request.handOff(entry);
+			else
+				LockSupport.unpark(thread);
+			return true;
+		}
+		
+		/**
+		 * Tells this waiter that the pool was closed.
+		 * A waiting thread is woken to find that out, and a request is failed.
+		 */
+		private void close()
+		{
+			if (request != null)
+			{
+				if (cancel())
+					request.fail(new IllegalStateException("This pool was closed."));
+			}
+			else
+				LockSupport.unpark(thread);
+		}
+		
+		/**
+		 * Tells this waiter that the circuit breaker opened.
+		 * A waiting thread is woken to find that out, and a request is failed.
+		 */
+		private void reject()
+		{
+			if (request != null)
+				request.reject();
+			else
+				LockSupport.unpark(thread);
+		}
+		
+		/**
+		 * Stops waiting, unless a connection was already handed off.
+		 * @return true if cancelled, false if a connection was handed off.
+		 */
+		private boolean cancel()
+		{
+			return slot.compareAndSet(null, CANCELLED);
+		}
+		
+		/**
+		 * @return the handed-off connection entry, or null if none.
+		 */
+		private Entry getEntry()
+		{
+			Object out = slot.get();
+			return out instanceof Entry ? (Entry)out : null;
 		}
 	}
 	
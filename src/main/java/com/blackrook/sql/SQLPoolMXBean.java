@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+/**
+ * The management interface of a {@link SQLPool}, for exporting its metrics over JMX.
+ * Times are in milliseconds.
+ * @author Matthew Tropiano
+ * @since 1.4.0
+ * @see SQLPool#registerMXBean(String)
+ * @see SQLPoolMetrics
+ */
+public interface SQLPoolMXBean
+{
+	/**
+	 * @return the amount of available connections.
+	 */
+	int getAvailableConnectionCount();
+	
+	/**
+	 * @return the amount of connections in use.
+	 */
+	int getUsedConnectionCount();
+	
+	/**
+	 * @return the amount of threads waiting for a connection.
+	 */
+	int getWaitingThreadCount();
+	
+	/**
+	 * @return the highest amount of connections that were in use at the same time.
+	 */
+	int getPeakUsedConnectionCount();
+	
+	/**
+	 * @return the current maximum amount of connections.
+	 */
+	int getSizeLimit();
+	
+	/**
+	 * @return the amount of connections retrieved from the pool.
+	 */
+	long getAcquireCount();
+	
+	/**
+	 * @return the amount of times that a thread gave up waiting for a connection.
+	 */
+	long getTimeoutCount();
+	
+	/**
+	 * @return the amount of connections opened by the pool.
+	 */
+	long getCreatedConnectionCount();
+	
+	/**
+	 * @return the amount of times that the pool failed to open a connection.
+	 */
+	long getFailedConnectionCount();
+	
+	/**
+	 * @return the amount of connections closed by the pool.
+	 */
+	long getClosedConnectionCount();
+	
+	/**
+	 * @return the approximate median time to retrieve a connection.
+	 */
+	double getAcquireWaitMillis50();
+	
+	/**
+	 * @return the approximate 95th percentile time to retrieve a connection.
+	 */
+	double getAcquireWaitMillis95();
+	
+	/**
+	 * @return the approximate 99th percentile time to retrieve a connection.
+	 */
+	double getAcquireWaitMillis99();
+	
+	/**
+	 * @return the longest time to retrieve a connection.
+	 */
+	double getAcquireWaitMillisMax();
+	
+	/**
+	 * @return the approximate median time that connections were in use.
+	 */
+	double getUsageMillis50();
+	
+	/**
+	 * @return the approximate 95th percentile time that connections were in use.
+	 */
+	double getUsageMillis95();
+	
+	/**
+	 * @return the approximate 99th percentile time that connections were in use.
+	 */
+	double getUsageMillis99();
+	
+	/**
+	 * @return the longest time that a connection was in use.
+	 */
+	double getUsageMillisMax();
+	
+}
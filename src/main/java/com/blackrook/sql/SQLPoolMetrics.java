@@ -0,0 +1,486 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A snapshot of a {@link SQLPool}'s counters and latency distributions.
+ * Counters are totals since the pool was created.
+ * <p>The values are read one after the other while the pool is in use, so they may not be exactly consistent with each other.
+ * @author Matthew Tropiano
+ * @since 1.4.0
+ * @see SQLPool#getMetrics()
+ */
+public final class SQLPoolMetrics
+{
+	private final int availableConnectionCount;
+	private final int usedConnectionCount;
+	private final int waitingThreadCount;
+	private final int peakUsedConnectionCount;
+	private final int sizeLimit;
+	private final long acquireCount;
+	private final long timeoutCount;
+	private final long createdConnectionCount;
+	private final long failedConnectionCount;
+	private final long closedConnectionCount;
+	private final Latency acquireWait;
+	private final Latency usage;
+	private final Map<String, PartitionMetrics> partitions;
+	
+	SQLPoolMetrics(
+		int availableConnectionCount,
+		int usedConnectionCount,
+		int waitingThreadCount,
+		int peakUsedConnectionCount,
+		int sizeLimit,
+		long acquireCount,
+		long timeoutCount,
+		long createdConnectionCount,
+		long failedConnectionCount,
+		long closedConnectionCount,
+		Latency acquireWait,
+		Latency usage,
+		Map<String, PartitionMetrics> partitions
+	){
+		this.availableConnectionCount = availableConnectionCount;
+		this.usedConnectionCount = usedConnectionCount;
+		this.waitingThreadCount = waitingThreadCount;
+		this.peakUsedConnectionCount = peakUsedConnectionCount;
+		this.sizeLimit = sizeLimit;
+		this.acquireCount = acquireCount;
+		this.timeoutCount = timeoutCount;
+		this.createdConnectionCount = createdConnectionCount;
+		this.failedConnectionCount = failedConnectionCount;
+		this.closedConnectionCount = closedConnectionCount;
+		this.acquireWait = acquireWait;
+		this.usage = usage;
+		this.partitions = Collections.unmodifiableMap(partitions);
+	}
+	
+	/**
+	 * @return the amount of available connections.
+	 */
+	public int getAvailableConnectionCount()
+	{
+		return availableConnectionCount;
+	}
+	
+	/**
+	 * @return the amount of connections in use.
+	 */
+	public int getUsedConnectionCount()
+	{
+		return usedConnectionCount;
+	}
+	
+	/**
+	 * @return the amount of threads waiting for a connection.
+	 */
+	public int getWaitingThreadCount()
+	{
+		return waitingThreadCount;
+	}
+	
+	/**
+	 * @return the highest amount of connections that were in use at the same time.
+	 */
+	public int getPeakUsedConnectionCount()
+	{
+		return peakUsedConnectionCount;
+	}
+	
+	/**
+	 * @return the current maximum amount of connections: the pool's maximum size, or less if the pool sizes itself.
+	 * @see SQLPool.Options#setAdaptiveSizingIntervalMillis(long)
+	 */
+	public int getSizeLimit()
+	{
+		return sizeLimit;
+	}
+	
+	/**
+	 * @return the amount of connections retrieved from the pool.
+	 */
+	public long getAcquireCount()
+	{
+		return acquireCount;
+	}
+	
+	/**
+	 * @return the amount of times that a thread gave up waiting for a connection.
+	 */
+	public long getTimeoutCount()
+	{
+		return timeoutCount;
+	}
+	
+	/**
+	 * @return the amount of connections opened by the pool.
+	 */
+	public long getCreatedConnectionCount()
+	{
+		return createdConnectionCount;
+	}
+	
+	/**
+	 * @return the amount of times that the pool failed to open a connection.
+	 */
+	public long getFailedConnectionCount()
+	{
+		return failedConnectionCount;
+	}
+	
+	/**
+	 * @return the amount of connections closed by the pool (broken, idle, expired, or closed with the pool).
+	 */
+	public long getClosedConnectionCount()
+	{
+		return closedConnectionCount;
+	}
+	
+	/**
+	 * @return the distribution of the time that threads took to retrieve a connection (including no wait at all).
+	 */
+	public Latency getAcquireWait()
+	{
+		return acquireWait;
+	}
+	
+	/**
+	 * @return the distribution of the time that connections were in use before they were released.
+	 */
+	public Latency getUsage()
+	{
+		return usage;
+	}
+	
+	/**
+	 * @return the metrics of each of the pool's partitions, by name, in name order.
+	 * @see SQLPool#createPartition(String, int, boolean)
+	 */
+	public Map<String, PartitionMetrics> getPartitions()
+	{
+		return partitions;
+	}
+	
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("available=").append(availableConnectionCount);
+		sb.append(", used=").append(usedConnectionCount);
+		sb.append(", waiting=").append(waitingThreadCount);
+		sb.append(", peakUsed=").append(peakUsedConnectionCount);
+		sb.append(", sizeLimit=").append(sizeLimit);
+		sb.append(", acquired=").append(acquireCount);
+		sb.append(", timeouts=").append(timeoutCount);
+		sb.append(", created=").append(createdConnectionCount);
+		sb.append(", failed=").append(failedConnectionCount);
+		sb.append(", closed=").append(closedConnectionCount);
+		sb.append(", acquireWait=[").append(acquireWait).append(']');
+		sb.append(", usage=[").append(usage).append(']');
+		for (PartitionMetrics partition : partitions.values())
+			sb.append(", partition ").append(partition.getName()).append("=[").append(partition).append(']');
+		return sb.toString();
+	}
+	
+	/**
+	 * A snapshot of a pool partition's counters.
+	 * @see SQLPool.Partition#getMetrics()
+	 */
+	public static final class PartitionMetrics
+	{
+		private final String name;
+		private final int maxConcurrency;
+		private final int usedConnectionCount;
+		private final int overflowConnectionCount;
+		private final int waitingThreadCount;
+		private final int peakUsedConnectionCount;
+		private final long acquireCount;
+		private final long timeoutCount;
+		private final Latency acquireWait;
+		
+		PartitionMetrics(
+			String name,
+			int maxConcurrency,
+			int usedConnectionCount,
+			int overflowConnectionCount,
+			int waitingThreadCount,
+			int peakUsedConnectionCount,
+			long acquireCount,
+			long timeoutCount,
+			Latency acquireWait
+		){
+			this.name = name;
+			this.maxConcurrency = maxConcurrency;
+			this.usedConnectionCount = usedConnectionCount;
+			this.overflowConnectionCount = overflowConnectionCount;
+			this.waitingThreadCount = waitingThreadCount;
+			this.peakUsedConnectionCount = peakUsedConnectionCount;
+			this.acquireCount = acquireCount;
+			this.timeoutCount = timeoutCount;
+			this.acquireWait = acquireWait;
+		}
+		
+		/**
+		 * @return the partition name.
+		 */
+		public String getName()
+		{
+			return name;
+		}
+		
+		/**
+		 * @return the maximum amount of connections that the partition can have in use, not counting overflow.
+		 */
+		public int getMaxConcurrency()
+		{
+			return maxConcurrency;
+		}
+		
+		/**
+		 * @return the amount of connections in use by the partition, including overflow.
+		 */
+		public int getUsedConnectionCount()
+		{
+			return usedConnectionCount;
+		}
+		
+		/**
+		 * @return the amount of connections in use by the partition that were borrowed from the shared overflow.
+		 */
+		public int getOverflowConnectionCount()
+		{
+			return overflowConnectionCount;
+		}
+		
+		/**
+		 * @return the amount of threads waiting for the partition to be below its maximum.
+		 */
+		public int getWaitingThreadCount()
+		{
+			return waitingThreadCount;
+		}
+		
+		/**
+		 * @return the highest amount of connections that the partition had in use at the same time.
+		 */
+		public int getPeakUsedConnectionCount()
+		{
+			return peakUsedConnectionCount;
+		}
+		
+		/**
+		 * @return the amount of connections retrieved through the partition.
+		 */
+		public long getAcquireCount()
+		{
+			return acquireCount;
+		}
+		
+		/**
+		 * @return the amount of times that a thread gave up waiting for the partition or the pool.
+		 */
+		public long getTimeoutCount()
+		{
+			return timeoutCount;
+		}
+		
+		/**
+		 * @return the distribution of the time that threads took to retrieve a connection through the partition.
+		 */
+		public Latency getAcquireWait()
+		{
+			return acquireWait;
+		}
+		
+		/**
+		 * @return the fraction of the partition's maximum that is in use, not counting overflow, from 0 to 1.
+		 */
+		public double getSaturation()
+		{
+			return (double)(usedConnectionCount - overflowConnectionCount) / maxConcurrency;
+		}
+		
+		@Override
+		public String toString()
+		{
+			return String.format("used=%d/%d, overflow=%d, waiting=%d, peakUsed=%d, acquired=%d, timeouts=%d, acquireWait=[%s]",
+				usedConnectionCount,
+				maxConcurrency,
+				overflowConnectionCount,
+				waitingThreadCount,
+				peakUsedConnectionCount,
+				acquireCount,
+				timeoutCount,
+				acquireWait
+			);
+		}
+	}
+	
+	/**
+	 * A snapshot of a distribution of times.
+	 * Times are kept in power-of-two buckets, so percentiles are accurate to within a factor of two
+	 * (and never more than the maximum).
+	 */
+	public static final class Latency
+	{
+		private final long[] buckets;
+		private final long count;
+		private final long totalNanos;
+		private final long maxNanos;
+		
+		private Latency(long[] buckets, long count, long totalNanos, long maxNanos)
+		{
+			this.buckets = buckets;
+			this.count = count;
+			this.totalNanos = totalNanos;
+			this.maxNanos = maxNanos;
+		}
+		
+		/**
+		 * @return the amount of recorded times.
+		 */
+		public long getCount()
+		{
+			return count;
+		}
+		
+		/**
+		 * @return the mean recorded time in nanoseconds, or 0 if none.
+		 */
+		public long getMeanNanos()
+		{
+			return count > 0L ? totalNanos / count : 0L;
+		}
+		
+		/**
+		 * @return the longest recorded time in nanoseconds, or 0 if none.
+		 */
+		public long getMaxNanos()
+		{
+			return maxNanos;
+		}
+		
+		/**
+		 * Gets an approximate percentile of the recorded times.
+		 * @param percentile the percentile, from 0 to 100.
+		 * @return the time in nanoseconds that the provided percentage of recorded times are at or below, or 0 if none.
+		 * @throws IllegalArgumentException if percentile is not from 0 to 100.
+		 */
+		public long getPercentileNanos(double percentile)
+		{
+			if (percentile < 0.0 || percentile > 100.0)
+				throw new IllegalArgumentException("Percentile must be from 0 to 100.");
+			
+			long total = 0L;
+			for (int i = 0; i < buckets.length; i++)
+				total += buckets[i];
+			if (total == 0L)
+				return 0L;
+			
+			long target = Math.max((long)Math.ceil(total * (percentile / 100.0)), 1L);
+			long seen = 0L;
+			for (int i = 0; i < buckets.length; i++)
+			{
+				if ((seen += buckets[i]) >= target)
+					return Math.min(Recorder.getBucketLimit(i), maxNanos);
+			}
+			return maxNanos;
+		}
+		
+		@Override
+		public String toString()
+		{
+			return String.format("count=%d, mean=%.3fms, p50=%.3fms, p95=%.3fms, p99=%.3fms, max=%.3fms",
+				count,
+				getMeanNanos() / 1000000.0,
+				getPercentileNanos(50) / 1000000.0,
+				getPercentileNanos(95) / 1000000.0,
+				getPercentileNanos(99) / 1000000.0,
+				maxNanos / 1000000.0
+			);
+		}
+	}
+	
+	/**
+	 * Records a distribution of times without locking or allocating.
+	 */
+	static final class Recorder
+	{
+		/** Bucket count. Bucket <code>i</code> holds times from <code>2^(i-1)</code> to <code>2^i - 1</code> nanoseconds. */
+		private static final int BUCKETS = 64;
+		
+		private final AtomicLongArray buckets;
+		private final LongAdder count;
+		private final LongAdder totalNanos;
+		private final AtomicLong maxNanos;
+		
+		Recorder()
+		{
+			this.buckets = new AtomicLongArray(BUCKETS);
+			this.count = new LongAdder();
+			this.totalNanos = new LongAdder();
+			this.maxNanos = new AtomicLong(0L);
+		}
+		
+		/**
+		 * Records a time.
+		 * @param nanos the time in nanoseconds. Negative times are recorded as 0.
+		 */
+		void record(long nanos)
+		{
+			nanos = Math.max(nanos, 0L);
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+			count.increment();
+			totalNanos.add(nanos);
+			long max;
+			while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos))
+				;
+		}
+		
+		/**
+		 * @return the amount of recorded times.
+		 */
+		long getCount()
+		{
+			return count.sum();
+		}
+		
+		/**
+		 * @return the sum of the recorded times, in nanoseconds.
+		 */
+		long getTotalNanos()
+		{
+			return totalNanos.sum();
+		}
+		
+		/**
+		 * @return a snapshot of the recorded times.
+		 */
+		Latency snapshot()
+		{
+			long[] out = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++)
+				out[i] = buckets.get(i);
+			return new Latency(out, count.sum(), totalNanos.sum(), maxNanos.get());
+		}
+		
+		// Gets the highest time in a bucket.
+		private static long getBucketLimit(int bucket)
+		{
+			return (1L << bucket) - 1L;
+		}
+	}
+	
+}
@@ -8,10 +8,13 @@
 package com.blackrook.sql;
 
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * The data encapsulation of the result of a query {@link java.sql.ResultSet}.
@@ -29,6 +32,8 @@ public class SQLResult implements Iterable<SQLRow>
 	protected Object[] nextId;
 	/** Was this an update query? */
 	protected boolean update;
+	/** Is this result stored by column? */
+	protected boolean columnar;
 	/** List of rows of associative data. */
 	protected List<SQLRow> rows;
 	
@@ -39,6 +44,7 @@ public class SQLResult implements Iterable<SQLRow>
 	{
 		this.columnNames = EMPTY_ARRAY;
 		this.update = true;
+		this.columnar = false;
 		this.rowCount = rowsAffected;
 		this.rows = null;
 		List<Object> vect = new ArrayList<Object>();
@@ -51,20 +57,71 @@ public class SQLResult implements Iterable<SQLRow>
 			this.nextId[x++] = obj; 
 	}
 
+	/**
+	 * Creates a new query result from an update query that does not return generated keys. 
+	 */
+	SQLResult(int rowsAffected)
+	{
+		this.columnNames = EMPTY_ARRAY;
+		this.update = true;
+		this.columnar = false;
+		this.rowCount = rowsAffected;
+		this.rows = null;
+		this.nextId = new Object[0];
+	}
+	
 	/**
 	 * Creates a new query result from a result set. 
 	 */
 	SQLResult(ResultSet rs) throws SQLException
 	{
-		this.columnNames = SQL.getAllColumnNamesFromResultSet(rs);
+		this(rs, false);
+	}
+	
+	/**
+	 * Creates a new query result from a result set, optionally storing it by column. 
+	 */
+	SQLResult(ResultSet rs, boolean columnar) throws SQLException
+	{
+		this(rs, new SQLColumnIndex(SQL.getAllColumnNamesFromResultSet(rs)), columnar);
+	}
+	
+	/**
+	 * Creates a new query result from a result set and its already-read columns, optionally storing it by column. 
+	 */
+	SQLResult(ResultSet rs, SQLColumnIndex columns, boolean columnar) throws SQLException
+	{
+		this.columnNames = columns.getColumnNames();
 		this.update = false;
+		this.columnar = columnar;
 		this.rowCount = 0;
-		this.rows = new ArrayList<SQLRow>();
 		
-		while (rs.next())
+		if (columnar)
+		{
+			ResultSetMetaData metaData = rs.getMetaData();
+			SQLColumnVector[] vectors = new SQLColumnVector[columnNames.length];
+			for (int i = 0; i < vectors.length; i++)
+				vectors[i] = SQLColumnVector.create(metaData, i + 1);
+			
+			while (rs.next())
+			{
+				for (int i = 0; i < vectors.length; i++)
+					vectors[i].add(rs, i + 1);
+				this.rowCount++;
+			}
+			
+			for (int i = 0; i < vectors.length; i++)
+				vectors[i].trim();
+			this.rows = new ColumnarRowList(columns, vectors, rowCount);
+		}
+		else
 		{
-			this.rows.add(new SQLRow(rs, columnNames));
-			this.rowCount++;
+			this.rows = new ArrayList<SQLRow>();
+			while (rs.next())
+			{
+				this.rows.add(new SQLRow(rs, columns));
+				this.rowCount++;
+			}
 		}
 	}
 	
@@ -94,6 +151,17 @@ public class SQLResult implements Iterable<SQLRow>
 		return update;
 	}
 	
+	/**
+	 * Checks if this result is stored by column, rather than by row.
+	 * Rows in columnar results are lightweight views of the column data, created as they are retrieved.
+	 * @return true if so, false if not.
+	 * @since 1.4.0
+	 */
+	public boolean isColumnar()
+	{
+		return columnar;
+	}
+	
 	/**
 	 * Retrieves the rows from the query result.
 	 * @return a list of the rows in this result.
@@ -134,6 +202,38 @@ public class SQLResult implements Iterable<SQLRow>
 		return new SQLResultIterator();
 	}
 
+	/**
+	 * The immutable list of rows in a columnar result.
+	 * Each retrieved row is a view of the column vectors.
+	 */
+	private static class ColumnarRowList extends AbstractList<SQLRow> implements RandomAccess
+	{
+		private SQLColumnIndex columns;
+		private SQLColumnVector[] vectors;
+		private int size;
+		
+		private ColumnarRowList(SQLColumnIndex columns, SQLColumnVector[] vectors, int size)
+		{
+			this.columns = columns;
+			this.vectors = vectors;
+			this.size = size;
+		}
+		
+		@Override
+		public SQLRow get(int index)
+		{
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			return new SQLRow(columns, vectors, index);
+		}
+		
+		@Override
+		public int size()
+		{
+			return size;
+		}
+	}
+	
 	/**
 	 * The iterator returned to iterate through this result. 
 	 */
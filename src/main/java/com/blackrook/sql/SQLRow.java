@@ -17,11 +17,7 @@ import java.sql.Clob;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 import com.blackrook.sql.struct.Utils;
 import com.blackrook.sql.util.SQLRuntimeException;
@@ -36,48 +32,84 @@ public class SQLRow
 	private static final ThreadLocal<char[]> CHARBUFFER = ThreadLocal.withInitial(()->new char[1024 * 8]);
 	private static final ThreadLocal<byte[]> BYTEBUFFER = ThreadLocal.withInitial(()->new byte[1024 * 32]);
 	
-	/** Column index to SQL object. */
-	private List<Object> columnList;
-	/** Map of column name to index. */
-	private Map<String, Integer> columnMap;
+	/** Column name to index lookup (shared by all rows in a result). */
+	private SQLColumnIndex columns;
+	/** Column index to SQL object (null if this row is a view of a columnar result). */
+	private Object[] values;
+	/** Column vectors (null if this row holds its own values). */
+	private SQLColumnVector[] vectors;
+	/** Row index into the column vectors. */
+	private int row;
 	
 	/**
 	 * Constructor for a SQL row.
 	 * @param rs the open {@link ResultSet}, set to the row to create a SQLRow from.
-	 * @param columnNames the names given to the columns in the {@link ResultSet}, gathered ahead of time.
+	 * @param columns the column lookup for the columns in the {@link ResultSet}, gathered ahead of time.
 	 * @throws SQLException if a parse exception occurred.
 	 */
-	SQLRow(ResultSet rs, String[] columnNames) throws SQLException
+	SQLRow(ResultSet rs, SQLColumnIndex columns) throws SQLException
 	{
-		this.columnList = new ArrayList<>(rs.getMetaData().getColumnCount());
-		this.columnMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-		for (int i = 0; i < columnNames.length; i++)
-		{
-			Object sqlobj = rs.getObject(i + 1); // 1-based
-			
-			// Blobs, Clobs, and NClobs need to be converted while the connection is open.
-			if (sqlobj instanceof Blob)
-				sqlobj = getByteArray(sqlobj);
-			else if (sqlobj instanceof Clob)
-				sqlobj = getString(sqlobj);
-			
-			columnList.add(sqlobj);
-			columnMap.put(columnNames[i], i);
-		}
+		this.columns = columns;
+		this.values = new Object[columns.size()];
+		this.vectors = null;
+		this.row = 0;
+		for (int i = 0; i < values.length; i++)
+			values[i] = readValue(rs, i + 1); // 1-based
+	}
+	
+	/**
+	 * Constructor for a SQL row that is a view of one row of a columnar result.
+	 * @param columns the column lookup for the columns in the result.
+	 * @param vectors the column vectors in the result.
+	 * @param row the index of the row in the vectors.
+	 */
+	SQLRow(SQLColumnIndex columns, SQLColumnVector[] vectors, int row)
+	{
+		this.columns = columns;
+		this.values = null;
+		this.vectors = vectors;
+		this.row = row;
+	}
+	
+	/**
+	 * Reads a single value from the current row of a result set.
+	 * Blobs, Clobs, and NClobs are read out into byte arrays and Strings, since they need 
+	 * to be converted while the connection is open.
+	 * @param rs the open {@link ResultSet}, set to the row to read.
+	 * @param columnIndex the column index (1-based).
+	 * @return the value read.
+	 * @throws SQLException if the value cannot be read.
+	 */
+	static Object readValue(ResultSet rs, int columnIndex) throws SQLException
+	{
+		Object sqlobj = rs.getObject(columnIndex);
+		if (sqlobj instanceof Blob)
+			sqlobj = getByteArray(sqlobj);
+		else if (sqlobj instanceof Clob)
+			sqlobj = getString(sqlobj);
+		return sqlobj;
 	}
 	
 	// Get a column by index.
-	private Object getByIndex(Integer columnIndex)
+	private Object getByIndex(int columnIndex)
+	{
+		if (columnIndex < 0 || columnIndex >= columns.size())
+			return null;
+		return values != null ? values[columnIndex] : vectors[columnIndex].get(row);
+	}
+	
+	// Get a column vector by index, if it can be read without boxing.
+	private SQLColumnVector getPrimitiveVector(int columnIndex)
 	{
-		if (columnIndex == null || columnIndex < 0 || columnIndex >= columnList.size())
+		if (vectors == null || columnIndex < 0 || columnIndex >= vectors.length || !vectors[columnIndex].isPrimitive())
 			return null;
-		return columnList.get(columnIndex);
+		return vectors[columnIndex];
 	}
 
 	// Get a column by name.
 	private Object getByName(String columnName)
 	{
-		return getByIndex(columnMap.get(columnName));
+		return getByIndex(columns.indexOf(columnName));
 	}
 	
 	/**
@@ -87,6 +119,8 @@ public class SQLRow
 	 */
 	public boolean getNull(int columnIndex)
 	{
+		if (vectors != null && columnIndex >= 0 && columnIndex < vectors.length)
+			return vectors[columnIndex].isNull(row);
 		return getByIndex(columnIndex) == null;
 	}
 
@@ -97,7 +131,7 @@ public class SQLRow
 	 */
 	public boolean getNull(String columnName)
 	{
-		return getByName(columnName) == null;
+		return getNull(columns.indexOf(columnName));
 	}
 
 	/**
@@ -108,6 +142,9 @@ public class SQLRow
 	 */
 	public boolean getBoolean(int columnIndex)
 	{
+		SQLColumnVector vector;
+		if ((vector = getPrimitiveVector(columnIndex)) != null)
+			return vector.getBoolean(row);
 		return getBoolean(getByIndex(columnIndex));
 	}
 
@@ -119,7 +156,7 @@ public class SQLRow
 	 */
 	public boolean getBoolean(String columnName)
 	{
-		return getBoolean(getByName(columnName));
+		return getBoolean(columns.indexOf(columnName));
 	}
 	
 	/**
@@ -131,6 +168,9 @@ public class SQLRow
 	 */
 	public byte getByte(int columnIndex)
 	{
+		SQLColumnVector vector;
+		if ((vector = getPrimitiveVector(columnIndex)) != null)
+			return (byte)vector.getInt(row);
 		return getByte(getByIndex(columnIndex));
 	}
 	
@@ -143,7 +183,7 @@ public class SQLRow
 	 */
 	public byte getByte(String columnName)
 	{
-		return getByte(getByName(columnName));
+		return getByte(columns.indexOf(columnName));
 	}
 	
 	/**
@@ -179,6 +219,9 @@ public class SQLRow
 	 */
 	public short getShort(int columnIndex)
 	{
+		SQLColumnVector vector;
+		if ((vector = getPrimitiveVector(columnIndex)) != null)
+			return (short)vector.getInt(row);
 		return getShort(getByIndex(columnIndex));
 	}
 	
@@ -191,7 +234,7 @@ public class SQLRow
 	 */
 	public short getShort(String columnName)
 	{
-		return getShort(getByName(columnName));
+		return getShort(columns.indexOf(columnName));
 	}
 
 	/**
@@ -203,7 +246,10 @@ public class SQLRow
 	 */
 	public int getInt(int columnIndex)
 	{
-		return getInt(getByIndex(columnIndex));		
+		SQLColumnVector vector;
+		if ((vector = getPrimitiveVector(columnIndex)) != null)
+			return vector.getInt(row);
+		return getInt(getByIndex(columnIndex));
 	}
 	
 	/**
@@ -215,7 +261,7 @@ public class SQLRow
 	 */
 	public int getInt(String columnName)
 	{
-		return getInt(getByName(columnName));
+		return getInt(columns.indexOf(columnName));
 	}
 
 	/**
@@ -227,6 +273,9 @@ public class SQLRow
 	 */
 	public float getFloat(int columnIndex)
 	{
+		SQLColumnVector vector;
+		if ((vector = getPrimitiveVector(columnIndex)) != null)
+			return vector.getFloat(row);
 		return getFloat(getByIndex(columnIndex));
 	}
 
@@ -239,7 +288,7 @@ public class SQLRow
 	 */
 	public float getFloat(String columnName)
 	{
-		return getFloat(getByName(columnName));
+		return getFloat(columns.indexOf(columnName));
 	}
 
 	/**
@@ -252,6 +301,9 @@ public class SQLRow
 	 */
 	public long getLong(int columnIndex)
 	{
+		SQLColumnVector vector;
+		if ((vector = getPrimitiveVector(columnIndex)) != null)
+			return vector.getLong(row);
 		return getLong(getByIndex(columnIndex));
 	}
 
@@ -265,7 +317,7 @@ public class SQLRow
 	 */
 	public long getLong(String columnName)
 	{
-		return getLong(getByName(columnName));
+		return getLong(columns.indexOf(columnName));
 	}
 
 	/**
@@ -277,6 +329,9 @@ public class SQLRow
 	 */
 	public double getDouble(int columnIndex)
 	{
+		SQLColumnVector vector;
+		if ((vector = getPrimitiveVector(columnIndex)) != null)
+			return vector.getDouble(row);
 		return getDouble(getByIndex(columnIndex));
 	}
 	
@@ -289,7 +344,7 @@ public class SQLRow
 	 */
 	public double getDouble(String columnName)
 	{
-		return getDouble(getByName(columnName));
+		return getDouble(columns.indexOf(columnName));
 	}
 
 	/**
@@ -362,7 +417,7 @@ public class SQLRow
 		return getDate(getByName(columnName));
 	}
 
-	private boolean getBoolean(Object obj)
+	static boolean getBoolean(Object obj)
 	{
 		if (obj == null)
 			return false;
@@ -388,7 +443,7 @@ public class SQLRow
 		return (byte)0;
 	}
 
-	private byte[] getByteArray(Object obj)
+	private static byte[] getByteArray(Object obj)
 	{
 		if (obj == null)
 			return null;
@@ -431,7 +486,7 @@ public class SQLRow
 		return (short)0;
 	}
 
-	private int getInt(Object obj)
+	static int getInt(Object obj)
 	{
 		if (obj == null)
 			return 0;
@@ -444,7 +499,7 @@ public class SQLRow
 		return 0;
 	}
 
-	private float getFloat(Object obj)
+	static float getFloat(Object obj)
 	{
 		if (obj == null)
 			return 0f;
@@ -457,7 +512,7 @@ public class SQLRow
 		return 0f;
 	}
 
-	private long getLong(Object obj)
+	static long getLong(Object obj)
 	{
 		if (obj == null)
 			return 0L;
@@ -472,7 +527,7 @@ public class SQLRow
 		return 0L;
 	}
 
-	private double getDouble(Object obj)
+	static double getDouble(Object obj)
 	{
 		if (obj == null)
 			return 0.0;
@@ -485,7 +540,7 @@ public class SQLRow
 		return 0.0;
 	}
 
-	private String getString(Object obj)
+	private static String getString(Object obj)
 	{
 		if (obj == null)
 		{
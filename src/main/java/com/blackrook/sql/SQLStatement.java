@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+import java.lang.reflect.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.blackrook.sql.util.SQLRuntimeException;
+
+/**
+ * A handle to a single prepared statement that can be executed many times with different parameters,
+ * through the same row handling and type conversion as {@link SQLCallable}.
+ * <p>The result columns are read from the first query executed through this handle, and reused for every query after it,
+ * as is the column-to-member mapping of the last type that rows were converted to.
+ * <p>This handle MUST be closed before the connection that made it is closed or released.
+ * Like the connection, it is not meant to be used by more than one thread at a time.
+ * @author Matthew Tropiano
+ * @since 1.4.0
+ * @see SQLCallable#prepare(String)
+ */
+public class SQLStatement implements AutoCloseable
+{
+	/** The encapsulated statement. */
+	private PreparedStatement statement;
+	/** Was this prepared to return generated keys? */
+	private boolean generatedKeys;
+	/** The result columns, read from the first query. */
+	private SQLColumnIndex columns;
+	/** The row mapper for the last type that rows were mapped to. */
+	private SQL.RowMapper<?> mapper;
+	/** The parameter binding plan, made from the first set of parameters. */
+	private SQLParameterBinder[] bindingPlan;
+	/** Amount of parameter sets added to the current batch. */
+	private int batchCount;
+	/** Is this closed? */
+	private boolean closed;
+	
+	/**
+	 * Wraps a prepared statement.
+	 * @param statement the statement.
+	 * @param generatedKeys true if the statement was prepared to return generated keys, false if not.
+	 */
+	SQLStatement(PreparedStatement statement, boolean generatedKeys)
+	{
+		this.statement = statement;
+		this.generatedKeys = generatedKeys;
+		this.columns = null;
+		this.mapper = null;
+		this.bindingPlan = null;
+		this.batchCount = 0;
+		this.closed = false;
+	}
+	
+	/**
+	 * Performs this query and extracts the first row result into a single {@link SQLRow}.
+	 * Only the first row is fetched - the rest of the result is never read.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the single result row returned, or null if no row returned.
+	 * @throws IllegalStateException if this is closed.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 */
+	public SQLRow getRow(Object ... parameters)
+	{
+		verifyOpen();
+		try {
+			bind(parameters);
+			int previousMaxRows = statement.getMaxRows();
+			int previousFetchSize = statement.getFetchSize();
+			statement.setMaxRows(1);
+			statement.setFetchSize(1);
+			try (ResultSet resultSet = statement.executeQuery())
+			{
+				SQLColumnIndex columns = getColumns(resultSet);
+				return resultSet.next() ? new SQLRow(resultSet, columns) : null;
+			}
+			finally
+			{
+				statement.setMaxRows(previousMaxRows);
+				statement.setFetchSize(previousFetchSize);
+			}
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		}
+	}
+	
+	/**
+	 * Performs this query and creates an object from the first result row extracted, setting relevant fields.
+	 * Only the first row is fetched - the rest of the result is never read.
+	 * Conversion of types is the same as {@link SQLCallable#getRow(Class, String, Object...)}.
+	 * @param <T> the returned data type.
+	 * @param type the class type to instantiate.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return an instantiated object with the pertinent fields set, or null if no rows.
+	 * @throws IllegalStateException if this is closed.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @throws ClassCastException if one object type cannot be converted to another.
+	 */
+	public <T> T getRow(Class<T> type, Object ... parameters)
+	{
+		verifyOpen();
+		try {
+			bind(parameters);
+			int previousMaxRows = statement.getMaxRows();
+			int previousFetchSize = statement.getFetchSize();
+			statement.setMaxRows(1);
+			statement.setFetchSize(1);
+			try (ResultSet resultSet = statement.executeQuery())
+			{
+				SQL.RowMapper<T> mapper = getMapper(type, resultSet);
+				return resultSet.next() ? mapper.map(resultSet) : null;
+			}
+			finally
+			{
+				statement.setMaxRows(previousMaxRows);
+				statement.setFetchSize(previousFetchSize);
+			}
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		}
+	}
+	
+	/**
+	 * Performs this query and extracts the resultant rows into a result.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the result of the query.
+	 * @throws IllegalStateException if this is closed.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 */
+	public SQLResult getResult(Object ... parameters)
+	{
+		verifyOpen();
+		try {
+			bind(parameters);
+			try (ResultSet resultSet = statement.executeQuery())
+			{
+				return new SQLResult(resultSet, getColumns(resultSet), false);
+			}
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		}
+	}
+	
+	/**
+	 * Performs this query and creates objects from the resultant rows, setting relevant fields on them.
+	 * Conversion of types is the same as {@link SQLCallable#getResult(Class, String, Object...)}.
+	 * @param <T> the returned data type.
+	 * @param type the class type to instantiate.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return an array of instantiated objects with the pertinent fields set for each row.
+	 * @throws IllegalStateException if this is closed.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @throws ClassCastException if one object type cannot be converted to another.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T[] getResult(Class<T> type, Object ... parameters)
+	{
+		verifyOpen();
+		try {
+			bind(parameters);
+			try (ResultSet resultSet = statement.executeQuery())
+			{
+				SQL.RowMapper<T> mapper = getMapper(type, resultSet);
+				List<T> rows = new ArrayList<>();
+				while (resultSet.next())
+					rows.add(mapper.map(resultSet));
+				return rows.toArray((T[])Array.newInstance(type, rows.size()));
+			}
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		}
+	}
+	
+	/**
+	 * Performs this query as an update query (INSERT, DELETE, UPDATE, or other commands that do not return rows)
+	 * and extracts the data/affected data/generated data into a SQLResult.
+	 * Generated ids are only returned if this statement was prepared to return them.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @return the update result returned (usually number of rows affected and or generated ids).
+	 * @throws IllegalStateException if this is closed.
+	 * @throws SQLRuntimeException if the query cannot be executed or the query causes an error.
+	 * @see SQLCallable#prepare(String, boolean)
+	 */
+	public SQLResult getUpdateResult(Object ... parameters)
+	{
+		verifyOpen();
+		try {
+			bind(parameters);
+			int rows = statement.executeUpdate();
+			if (!generatedKeys)
+				return new SQLResult(rows);
+			try (ResultSet resultSet = statement.getGeneratedKeys())
+			{
+				return new SQLResult(rows, resultSet);
+			}
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		}
+	}
+	
+	/**
+	 * Adds a set of parameters to this statement's current batch.
+	 * @param parameters list of parameters for parameterized queries.
+	 * @throws IllegalStateException if this is closed.
+	 * @throws SQLRuntimeException if the parameters cannot be set or added.
+	 * @see #executeBatch()
+	 */
+	public void addBatch(Object ... parameters)
+	{
+		verifyOpen();
+		try {
+			bind(parameters);
+			statement.addBatch();
+			batchCount++;
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		}
+	}
+	
+	/**
+	 * @return the amount of parameter sets added to the current batch.
+	 */
+	public int getBatchCount()
+	{
+		return batchCount;
+	}
+	
+	/**
+	 * Executes this statement's current batch, and starts a new one.
+	 * @return the amount of affected rows of each of the updates, each index corresponding to the order in which the sets of parameters were added.
+	 * 		May also return {@link java.sql.Statement#SUCCESS_NO_INFO} or {@link java.sql.Statement#EXECUTE_FAILED} per update.
+	 * @throws IllegalStateException if this is closed.
+	 * @throws SQLRuntimeException if the batch cannot be executed or causes an error.
+	 * @see #addBatch(Object...)
+	 */
+	public int[] executeBatch()
+	{
+		verifyOpen();
+		try {
+			return statement.executeBatch();
+		} catch (SQLException e) {
+			throw new SQLRuntimeException(e);
+		} finally {
+			batchCount = 0;
+		}
+	}
+	
+	/**
+	 * @return true if this handle is closed, false if not.
+	 */
+	public boolean isClosed()
+	{
+		return closed;
+	}
+	
+	/**
+	 * Closes the statement under this handle.
+	 * Does nothing if already closed.
+	 */
+	@Override
+	public void close()
+	{
+		if (closed)
+			return;
+		closed = true;
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			// Do nothing.
+		}
+	}
+	
+	private void verifyOpen()
+	{
+		if (closed)
+			throw new IllegalStateException("This statement is closed.");
+	}
+	
+	// Binds parameters using the plan made from the first set of parameters.
+	private void bind(Object[] parameters) throws SQLException
+	{
+		statement.clearParameters();
+		if (bindingPlan == null)
+			bindingPlan = SQLParameterBinder.plan(parameters);
+		SQLParameterBinder.bind(statement, bindingPlan, parameters);
+	}
+	
+	// Gets the columns, reading them from the result set if this is the first query.
+	private SQLColumnIndex getColumns(ResultSet resultSet) throws SQLException
+	{
+		if (columns == null)
+			columns = new SQLColumnIndex(SQL.getAllColumnNamesFromResultSet(resultSet));
+		return columns;
+	}
+	
+	// Gets the row mapper for a type, keeping it for the next query.
+	@SuppressWarnings("unchecked")
+	private <T> SQL.RowMapper<T> getMapper(Class<T> type, ResultSet resultSet) throws SQLException
+	{
+		if (mapper == null || mapper.getType() != type)
+			mapper = SQL.getRowMapper(type, resultSet);
+		return (SQL.RowMapper<T>)mapper;
+	}
+	
+}
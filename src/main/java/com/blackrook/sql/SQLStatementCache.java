@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of prepared statements owned by a single {@link SQLConnection}.
+ * Statements are keyed by query text and whether they return generated keys.
+ * <p>A statement is checked out of the cache while it is in use, so nested calls with the same query
+ * get their own statement. Parameters are cleared before a statement is returned to the cache, and
+ * statements are closed when they are evicted, when a call on them fails, or when the owning connection is closed.
+ * <p>Like the connection that owns it, this is not meant to be used by more than one thread at a time.
+ * @author Matthew Tropiano
+ * @since 1.4.0
+ */
+public final class SQLStatementCache
+{
+	/** The connection to prepare statements on. */
+	private final Connection connection;
+	/** The maximum amount of cached statements. */
+	private final int maxSize;
+	/** The cached statements, in least-recently-used order. */
+	private final Map<Key, PreparedStatement> statements;
+	
+	/** Amount of calls that used a cached statement. */
+	private long hitCount;
+	/** Amount of calls that had to prepare a statement. */
+	private long missCount;
+	/** Amount of statements closed to make room for others. */
+	private long evictionCount;
+	
+	/**
+	 * Creates a new statement cache.
+	 * @param connection the connection to prepare statements on.
+	 * @param maxSize the maximum amount of statements to keep. If 0 or less, nothing is kept.
+	 */
+	SQLStatementCache(Connection connection, int maxSize)
+	{
+		this.connection = connection;
+		this.maxSize = Math.max(maxSize, 0);
+		this.statements = new LinkedHashMap<>(16, 0.75f, true);
+		this.hitCount = 0L;
+		this.missCount = 0L;
+		this.evictionCount = 0L;
+	}
+	
+	/**
+	 * @return the maximum amount of statements kept by this cache. If 0, caching is disabled.
+	 */
+	public int getMaxSize()
+	{
+		return maxSize;
+	}
+	
+	/**
+	 * @return the amount of statements currently kept by this cache.
+	 */
+	public int size()
+	{
+		return statements.size();
+	}
+	
+	/**
+	 * @return the amount of calls that used a cached statement.
+	 */
+	public long getHitCount()
+	{
+		return hitCount;
+	}
+	
+	/**
+	 * @return the amount of calls that had to prepare a new statement.
+	 */
+	public long getMissCount()
+	{
+		return missCount;
+	}
+	
+	/**
+	 * @return the amount of statements that were closed to make room for others.
+	 */
+	public long getEvictionCount()
+	{
+		return evictionCount;
+	}
+	
+	/**
+	 * Closes and removes all cached statements.
+	 * The counters are not reset.
+	 */
+	public void clear()
+	{
+		Iterator<PreparedStatement> it = statements.values().iterator();
+		while (it.hasNext())
+		{
+			close(it.next());
+			it.remove();
+		}
+	}
+	
+	/**
+	 * Calls a function with a prepared statement for a query, and returns the statement to the cache if it succeeds.
+	 * @param <R> the return type.
+	 * @param query the query text.
+	 * @param generatedKeys if true, the statement is prepared to return generated keys.
+	 * @param function the function to call with the statement.
+	 * @return the function's result.
+	 * @throws SQLException if the statement could not be prepared, or the function throws one.
+	 */
+	<R> R call(String query, boolean generatedKeys, StatementFunction<R> function) throws SQLException
+	{
+		Key key = new Key(query, generatedKeys);
+		PreparedStatement statement = checkOut(key);
+		boolean success = false;
+		try {
+			R out = function.apply(statement);
+			statement.clearParameters();
+			success = true;
+			return out;
+		} finally {
+			if (success)
+				checkIn(key, statement);
+			else
+				close(statement);
+		}
+	}
+	
+	// Removes a statement from the cache, or prepares a new one if there is none.
+	private PreparedStatement checkOut(Key key) throws SQLException
+	{
+		PreparedStatement out;
+		if ((out = statements.remove(key)) != null)
+		{
+			hitCount++;
+			return out;
+		}
+		
+		missCount++;
+		if (key.generatedKeys)
+			return connection.prepareStatement(key.query, Statement.RETURN_GENERATED_KEYS);
+		else
+			return connection.prepareStatement(key.query);
+	}
+	
+	// Returns a statement to the cache, evicting the least-recently-used statement if full.
+	private void checkIn(Key key, PreparedStatement statement)
+	{
+		if (maxSize == 0 || statements.containsKey(key))
+		{
+			close(statement);
+			return;
+		}
+		
+		if (statements.size() >= maxSize)
+		{
+			Iterator<PreparedStatement> it = statements.values().iterator();
+			close(it.next());
+			it.remove();
+			evictionCount++;
+		}
+		statements.put(key, statement);
+	}
+	
+	private static void close(PreparedStatement statement)
+	{
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			// Do nothing.
+		}
+	}
+	
+	/**
+	 * A function that is called with a prepared statement.
+	 * @param <R> the return type.
+	 */
+	@FunctionalInterface
+	interface StatementFunction<R>
+	{
+		/**
+		 * Calls this function.
+		 * @param statement the statement to use.
+		 * @return the result.
+		 * @throws SQLException if a SQL exception occurs.
+		 */
+		R apply(PreparedStatement statement) throws SQLException;
+	}
+	
+	/**
+	 * A cache key.
+	 */
+	private static final class Key
+	{
+		private final String query;
+		private final boolean generatedKeys;
+		
+		private Key(String query, boolean generatedKeys)
+		{
+			this.query = query;
+			this.generatedKeys = generatedKeys;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return query.hashCode() * 31 + (generatedKeys ? 1 : 0);
+		}
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof Key))
+				return false;
+			Key key = (Key)obj;
+			return generatedKeys == key.generatedKeys && query.equals(key.query);
+		}
+	}
+	
+}
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+/**
+ * An in-memory driver for the pool test mains, whose connections do nothing.
+ * Connecting and validation can be made to fail, to simulate a database outage.
+ */
+public final class PoolTestDriver implements java.sql.Driver
+{
+	public static final String URL = "jdbc:pooltest:";
+	
+	/** If true, connecting fails. */
+	public static volatile boolean failing = false;
+	/** If true, open connections fail validation. */
+	public static volatile boolean invalid = false;
+	/** Time to wait before connecting, in milliseconds. */
+	public static volatile long connectDelayMillis = 0L;
+	
+	static
+	{
+		try {
+			DriverManager.registerDriver(new PoolTestDriver());
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	/**
+	 * @return a new connector that uses this driver.
+	 */
+	public static SQLConnector createConnector()
+	{
+		return new SQLConnector(PoolTestDriver.class.getName(), URL);
+	}
+	
+	/**
+	 * Resets the outage switches.
+	 */
+	public static void reset()
+	{
+		failing = false;
+		invalid = false;
+		connectDelayMillis = 0L;
+	}
+	
+	/**
+	 * Throws an exception if a check does not hold.
+	 * @param condition the checked condition.
+	 * @param message the description of the check.
+	 */
+	public static void check(boolean condition, String message)
+	{
+		if (!condition)
+			throw new AssertionError("FAILED: " + message);
+		System.out.println("ok: " + message);
+	}
+	
+	/**
+	 * Waits until a condition holds, such as a waiter being in line.
+	 * @param condition the condition.
+	 * @param timeoutMillis the time to wait, in milliseconds.
+	 * @throws InterruptedException if interrupted while waiting.
+	 * @throws TimeoutException if the condition does not hold in time.
+	 */
+	public static void await(BooleanSupplier condition, long timeoutMillis) throws InterruptedException, TimeoutException
+	{
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while (!condition.getAsBoolean())
+		{
+			if (System.currentTimeMillis() > deadline)
+				throw new TimeoutException("Condition not met in " + timeoutMillis + " ms.");
+			Thread.sleep(1);
+		}
+	}
+	
+	@Override
+	public Connection connect(String url, Properties info) throws SQLException
+	{
+		if (!acceptsURL(url))
+			return null;
+		long delay = connectDelayMillis;
+		if (delay > 0L)
+		{
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (failing)
+			throw new SQLException("The database is down.");
+		boolean[] closed = {false};
+		return (Connection)Proxy.newProxyInstance(
+			PoolTestDriver.class.getClassLoader(),
+			new Class<?>[]{Connection.class},
+			(proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "isClosed": return closed[0];
+					case "close": closed[0] = true; return null;
+					case "isValid": return !closed[0] && !invalid;
+					case "getAutoCommit": return true;
+					case "hashCode": return System.identityHashCode(proxy);
+					case "equals": return proxy == args[0];
+					case "toString": return "PoolTestConnection";
+					default: return null;
+				}
+			}
+		);
+	}
+	
+	@Override
+	public boolean acceptsURL(String url)
+	{
+		return url.startsWith(URL);
+	}
+	
+	@Override
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info)
+	{
+		return new DriverPropertyInfo[0];
+	}
+	
+	@Override
+	public int getMajorVersion()
+	{
+		return 1;
+	}
+	
+	@Override
+	public int getMinorVersion()
+	{
+		return 0;
+	}
+	
+	@Override
+	public boolean jdbcCompliant()
+	{
+		return false;
+	}
+	
+	@Override
+	public Logger getParentLogger()
+	{
+		return Logger.getLogger(PoolTestDriver.class.getName());
+	}
+	
+}
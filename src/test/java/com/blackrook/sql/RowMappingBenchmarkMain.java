@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the throughput of {@link SQL#createObjectsFromResultSet(Class, ResultSet)}
+ * over an in-memory result set, for objects filled by public fields and by setters,
+ * against a baseline mapper that sets every member reflectively with boxed values.
+ * No database or driver is needed.
+ * <p>Usage: <code>RowMappingBenchmarkMain [rows] [rounds]</code>
+ */
+public final class RowMappingBenchmarkMain
+{
+	private static final String[] COLUMNS = {"id", "count", "score", "active", "name", "ratio"};
+	private static final int[] TYPES = {Types.BIGINT, Types.INTEGER, Types.DOUBLE, Types.BOOLEAN, Types.VARCHAR, Types.INTEGER};
+	
+	public static class FieldData
+	{
+		public long id;
+		public int count;
+		public double score;
+		public boolean active;
+		public String name;
+		public long ratio;
+	}
+	
+	public static class SetterData
+	{
+		private long id;
+		private int count;
+		private double score;
+		private boolean active;
+		private String name;
+		private long ratio;
+		
+		public void setId(long id) {this.id = id;}
+		public void setCount(int count) {this.count = count;}
+		public void setScore(double score) {this.score = score;}
+		public void setActive(boolean active) {this.active = active;}
+		public void setName(String name) {this.name = name;}
+		public void setRatio(long ratio) {this.ratio = ratio;}
+		
+		@Override
+		public int hashCode()
+		{
+			return Long.hashCode(id) ^ count ^ Double.hashCode(score) ^ (active ? 1 : 0) ^ name.hashCode() ^ Long.hashCode(ratio);
+		}
+	}
+	
+	public static void main(String[] args) throws SQLException
+	{
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+		
+		Object[][] data = new Object[rows][];
+		for (int i = 0; i < rows; i++)
+			data[i] = new Object[]{(long)i, i % 1000, i / 7.0, (i & 1) == 0, "name" + (i % 100), i % 50};
+		
+		System.out.println("Rows: " + rows + ", rounds: " + rounds);
+		run("public fields", FieldData.class, data, rounds, false);
+		run("  (reflective)", FieldData.class, data, rounds, true);
+		run("setters", SetterData.class, data, rounds, false);
+		run("  (reflective)", SetterData.class, data, rounds, true);
+	}
+	
+	private static <T> void run(String name, Class<T> type, Object[][] data, int rounds, boolean reflective) throws SQLException
+	{
+		long best = Long.MAX_VALUE;
+		long check = 0;
+		for (int r = 0; r < rounds; r++)
+		{
+			ResultSet resultSet = createResultSet(data);
+			long time = System.nanoTime();
+			T[] out = reflective ? createReflectively(type, resultSet) : SQL.createObjectsFromResultSet(type, resultSet);
+			time = System.nanoTime() - time;
+			check += out[out.length - 1].hashCode() & 1;
+			best = Math.min(best, time);
+		}
+		System.out.printf("%-14s best %8.2f ms, %,12.0f rows/sec (%d)\n", name, best / 1000000.0, data.length / (best / 1000000000.0), check);
+	}
+	
+	// Maps all rows with the reflective baseline mapper.
+	@SuppressWarnings("unchecked")
+	private static <T> T[] createReflectively(Class<T> type, ResultSet resultSet) throws SQLException
+	{
+		SQL.RowMapper<T> mapper = SQL.createReflectiveRowMapper(type, resultSet);
+		List<T> out = new ArrayList<>();
+		while (resultSet.next())
+			out.add(mapper.map(resultSet));
+		return out.toArray((T[])Array.newInstance(type, out.size()));
+	}
+	
+	// A forward-only result set over the data, with just enough implemented for mapping.
+	private static ResultSet createResultSet(Object[][] data)
+	{
+		ResultSetMetaData metaData = (ResultSetMetaData)Proxy.newProxyInstance(
+			RowMappingBenchmarkMain.class.getClassLoader(),
+			new Class<?>[]{ResultSetMetaData.class},
+			(proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "getColumnCount": return COLUMNS.length;
+					case "getColumnName": case "getColumnLabel": return COLUMNS[(Integer)args[0] - 1];
+					case "getColumnType": return TYPES[(Integer)args[0] - 1];
+					default: throw new UnsupportedOperationException(method.getName());
+				}
+			}
+		);
+		
+		int[] row = {-1};
+		boolean[] wasNull = {false};
+		return (ResultSet)Proxy.newProxyInstance(
+			RowMappingBenchmarkMain.class.getClassLoader(),
+			new Class<?>[]{ResultSet.class},
+			(proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "next": return ++row[0] < data.length;
+					case "getMetaData": return metaData;
+					case "wasNull": return wasNull[0];
+					case "close": return null;
+				}
+				Object value = data[row[0]][(Integer)args[0] - 1];
+				wasNull[0] = value == null;
+				switch (method.getName())
+				{
+					case "getObject": return value;
+					case "getLong": return value != null ? ((Number)value).longValue() : 0L;
+					case "getInt": return value != null ? ((Number)value).intValue() : 0;
+					case "getShort": return value != null ? ((Number)value).shortValue() : (short)0;
+					case "getDouble": return value != null ? ((Number)value).doubleValue() : 0.0;
+					case "getFloat": return value != null ? ((Number)value).floatValue() : 0f;
+					case "getBoolean": return value != null ? (Boolean)value : false;
+					default: throw new UnsupportedOperationException(method.getName());
+				}
+			}
+		);
+	}
+	
+}
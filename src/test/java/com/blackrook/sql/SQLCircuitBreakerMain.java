@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+import static com.blackrook.sql.PoolTestDriver.await;
+import static com.blackrook.sql.PoolTestDriver.check;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Checks the state transitions of a {@link SQLCircuitBreaker} (closed, open, half-open, and closed again),
+ * on its own and guarding a {@link SQLConnector} and {@link SQLPool},
+ * including that background validation does not close a half-open breaker before its trial reports back.
+ * Connections come from an in-memory driver that can simulate an outage, so no database is needed.
+ * <p>Usage: <code>SQLCircuitBreakerMain</code>
+ */
+public final class SQLCircuitBreakerMain
+{
+	private static final long OPEN_MILLIS = 100L;
+	
+	public static void main(String[] args) throws Exception
+	{
+		// State changes are logged - keep them quiet.
+		Logger logger = Logger.getLogger(SQLCircuitBreaker.class.getName());
+		logger.setLevel(Level.OFF);
+		
+		checkTransitions();
+		checkConnector();
+		checkValidation();
+		System.out.println("All checks passed.");
+	}
+	
+	// Closed to open on consecutive failures, open to half-open after the open time, and half-open to open or closed.
+	private static void checkTransitions() throws Exception
+	{
+		SQLCircuitBreaker breaker = new SQLCircuitBreaker(2, OPEN_MILLIS);
+		check(breaker.getState() == SQLCircuitBreaker.State.CLOSED, "breaker starts closed");
+		check(!breaker.recordFailure(), "failure below the threshold does not open the breaker");
+		breaker.recordSuccess();
+		check(breaker.getFailureCount() == 0, "success resets the failure count");
+		check(!breaker.recordFailure() && breaker.recordFailure(), "consecutive failures at the threshold open the breaker");
+		check(breaker.getState() == SQLCircuitBreaker.State.OPEN && breaker.isRejecting(), "open breaker rejects attempts");
+		check(isRejected(breaker), "open breaker rejects permission");
+		
+		Thread.sleep(OPEN_MILLIS + 20L);
+		check(!breaker.isRejecting(), "open breaker stops rejecting after the open time");
+		check(!isRejected(breaker), "first attempt after the open time is the trial");
+		check(breaker.getState() == SQLCircuitBreaker.State.HALF_OPEN, "trial makes the breaker half-open");
+		check(isRejected(breaker), "half-open breaker rejects other attempts");
+		check(breaker.recordFailure(), "failed trial opens the breaker again");
+		check(breaker.getState() == SQLCircuitBreaker.State.OPEN && isRejected(breaker), "reopened breaker rejects attempts");
+		
+		Thread.sleep(OPEN_MILLIS + 20L);
+		check(!isRejected(breaker), "next trial is let through after the open time");
+		breaker.recordSuccess();
+		check(breaker.getState() == SQLCircuitBreaker.State.CLOSED && !breaker.isRejecting(), "successful trial closes the breaker");
+		check(breaker.getFailureCount() == 0, "closed breaker starts with no failures");
+	}
+	
+	// A connector's failed connections open its breaker, and pools fail fast until a trial connection succeeds.
+	private static void checkConnector() throws Exception
+	{
+		PoolTestDriver.reset();
+		SQLConnector connector = PoolTestDriver.createConnector();
+		SQLCircuitBreaker breaker = new SQLCircuitBreaker(3, OPEN_MILLIS);
+		connector.setCircuitBreaker(breaker);
+		try (SQLPool pool = new SQLPool(connector, new SQLPool.Options(0, 1, 0L)))
+		{
+			PoolTestDriver.failing = true;
+			for (int i = 0; i < 3; i++)
+			{
+				Exception thrown = null;
+				try {
+					connector.getConnection().close();
+				} catch (SQLException e) {
+					thrown = e;
+				}
+				check(thrown != null && !(thrown instanceof SQLCircuitBreaker.OpenException), "connection " + (i + 1) + " fails during the outage");
+			}
+			check(breaker.getState() == SQLCircuitBreaker.State.OPEN, "failed connections open the breaker");
+			
+			long time = System.nanoTime();
+			Exception thrown = null;
+			try {
+				pool.getAvailableConnection(5000L);
+			} catch (SQLCircuitBreaker.OpenException e) {
+				thrown = e;
+			}
+			time = (System.nanoTime() - time) / 1000000L;
+			check(thrown != null && time < 1000L, "pool fails fast while the breaker is open (" + time + " ms)");
+			
+			PoolTestDriver.failing = false;
+			Thread.sleep(OPEN_MILLIS + 20L);
+			connector.getConnection().close();
+			check(breaker.getState() == SQLCircuitBreaker.State.CLOSED, "successful trial connection closes the breaker");
+			SQLConnection connection = pool.getAvailableConnection(1000L);
+			check(connection != null && !connection.isClosed(), "pool retrieves an open connection after the breaker closes");
+			pool.releaseConnection(connection);
+			check(pool.getUsedConnectionCount() == 0 && pool.getAvailableConnectionCount() == 1, "released connection is back in the pool");
+		}
+	}
+	
+	// Background validation resets the failure count while closed, but leaves a half-open breaker to its trial, whether it succeeds or fails.
+	private static void checkValidation() throws Exception
+	{
+		PoolTestDriver.reset();
+		SQLConnector connector = PoolTestDriver.createConnector();
+		SQLCircuitBreaker breaker = new SQLCircuitBreaker(3, OPEN_MILLIS);
+		connector.setCircuitBreaker(breaker);
+		SQLPool.Options options = new SQLPool.Options(1, 1, 0L);
+		options.setValidationIntervalMillis(20L);
+		try (SQLPool pool = new SQLPool(connector, options))
+		{
+			breaker.recordFailure();
+			breaker.recordFailure();
+			boolean reset;
+			try {
+				await(() -> breaker.getFailureCount() == 0, 5000L);
+				reset = true;
+			} catch (TimeoutException e) {
+				reset = false;
+			}
+			check(reset, "successful validation resets the failure count while closed");
+			
+			breaker.recordFailure();
+			breaker.recordFailure();
+			breaker.recordFailure();
+			check(breaker.getState() == SQLCircuitBreaker.State.OPEN, "breaker is open");
+			Thread.sleep(OPEN_MILLIS + 20L);
+			breaker.acquirePermission();
+			check(breaker.getState() == SQLCircuitBreaker.State.HALF_OPEN, "trial makes the breaker half-open");
+			// Let several validations of the pool's idle connection run.
+			Thread.sleep(200L);
+			check(breaker.getState() == SQLCircuitBreaker.State.HALF_OPEN, "successful validation does not close a half-open breaker");
+			breaker.recordSuccess();
+			check(breaker.getState() == SQLCircuitBreaker.State.CLOSED, "trial success closes the breaker");
+			
+			breaker.recordFailure();
+			breaker.recordFailure();
+			breaker.recordFailure();
+			Thread.sleep(OPEN_MILLIS + 20L);
+			breaker.acquirePermission();
+			check(breaker.getState() == SQLCircuitBreaker.State.HALF_OPEN, "next trial makes the breaker half-open");
+			long closedCount = pool.getMetrics().getClosedConnectionCount();
+			PoolTestDriver.invalid = true;
+			try {
+				// Let the pool's idle connection fail validation.
+				Thread.sleep(200L);
+				check(pool.getMetrics().getClosedConnectionCount() > closedCount, "failed validation removes the connection");
+				check(breaker.getState() == SQLCircuitBreaker.State.HALF_OPEN, "failed validation does not reopen a half-open breaker");
+			} finally {
+				PoolTestDriver.invalid = false;
+			}
+			breaker.recordSuccess();
+			check(breaker.getState() == SQLCircuitBreaker.State.CLOSED, "trial success closes the breaker after failed validations");
+		}
+	}
+	
+	// Checks if the breaker rejects an attempt, asking for permission.
+	private static boolean isRejected(SQLCircuitBreaker breaker)
+	{
+		try {
+			breaker.acquirePermission();
+			return false;
+		} catch (SQLCircuitBreaker.OpenException e) {
+			return true;
+		}
+	}
+	
+}
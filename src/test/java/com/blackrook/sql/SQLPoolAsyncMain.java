@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+import static com.blackrook.sql.PoolTestDriver.await;
+import static com.blackrook.sql.PoolTestDriver.check;
+
+import java.sql.SQLException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checks that asynchronous requests for {@link SQLPool} connections that time out, are cancelled,
+ * or whose handlers fail, leave no connection behind, also when the release races the timeout or cancel.
+ * Connections come from an in-memory driver, so no database is needed.
+ * <p>Usage: <code>SQLPoolAsyncMain [rounds]</code>
+ */
+public final class SQLPoolAsyncMain
+{
+	public static void main(String[] args) throws Exception
+	{
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try (SQLPool pool = new SQLPool(PoolTestDriver.createConnector(), 1))
+		{
+			checkTimeout(pool, executor);
+			checkCancel(pool, executor);
+			checkHandlerFailure(pool, executor);
+			checkTimeoutRace(pool, executor, rounds);
+			checkCancelRace(pool, executor, rounds);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		System.out.println("All checks passed.");
+	}
+	
+	// A request that times out fails with a TimeoutException, and the next release stays in the pool.
+	private static void checkTimeout(SQLPool pool, ExecutorService executor) throws Exception
+	{
+		SQLConnection held = pool.getAvailableConnection();
+		CompletableFuture<SQLConnection> future = pool.acquireAsync(100L, executor);
+		Throwable cause = null;
+		try {
+			future.get(5L, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			cause = e.getCause();
+		}
+		check(cause instanceof TimeoutException, "request times out");
+		check(pool.getMetrics().getWaitingThreadCount() == 0, "timed out request leaves the line");
+		
+		AtomicBoolean called = new AtomicBoolean(false);
+		CompletableFuture<Integer> handled = pool.getConnectionAndAsync(100L, (connection) -> {
+			called.set(true);
+			return 1;
+		}, executor);
+		cause = null;
+		try {
+			handled.get(5L, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			cause = e.getCause();
+		}
+		check(cause instanceof TimeoutException && !called.get(), "handler of timed out request is not called");
+		pool.releaseConnection(held);
+		checkIdle(pool);
+	}
+	
+	// A cancelled request leaves the line, and the next release stays in the pool.
+	private static void checkCancel(SQLPool pool, ExecutorService executor) throws Exception
+	{
+		SQLConnection held = pool.getAvailableConnection();
+		CompletableFuture<SQLConnection> future = pool.acquireAsync(executor);
+		await(() -> pool.getMetrics().getWaitingThreadCount() == 1, 5000L);
+		check(future.cancel(false), "request is cancelled");
+		check(pool.getMetrics().getWaitingThreadCount() == 0, "cancelled request leaves the line");
+		
+		AtomicBoolean called = new AtomicBoolean(false);
+		CompletableFuture<Integer> handled = pool.getConnectionAndAsync((connection) -> {
+			called.set(true);
+			return 1;
+		}, executor);
+		await(() -> pool.getMetrics().getWaitingThreadCount() == 1, 5000L);
+		handled.cancel(false);
+		pool.releaseConnection(held);
+		checkIdle(pool);
+		check(!called.get(), "handler of cancelled request is not called");
+	}
+	
+	// A failing handler completes its future exceptionally, and its connection is released.
+	private static void checkHandlerFailure(SQLPool pool, ExecutorService executor) throws Exception
+	{
+		CompletableFuture<Void> future = pool.getConnectionAndAcceptAsync((connection) -> {
+			throw new SQLException("Handler failed.");
+		}, executor);
+		Throwable cause = null;
+		try {
+			future.get(5L, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			cause = e.getCause();
+		}
+		check(cause instanceof SQLException, "handler failure completes the request");
+		checkIdle(pool);
+	}
+	
+	// Releases race request timeouts: every connection ends up with the request or back in the pool.
+	private static void checkTimeoutRace(SQLPool pool, ExecutorService executor, int rounds) throws Exception
+	{
+		int handed = 0;
+		for (int i = 0; i < rounds; i++)
+		{
+			SQLConnection held = pool.getAvailableConnection();
+			CompletableFuture<SQLConnection> future = pool.acquireAsync(5L, executor);
+			Thread.sleep(i % 10);
+			pool.releaseConnection(held);
+			try {
+				pool.releaseConnection(future.get(5L, TimeUnit.SECONDS));
+				handed++;
+			} catch (ExecutionException e) {
+				if (!(e.getCause() instanceof TimeoutException))
+					throw e;
+			}
+			if (!awaitIdle(pool))
+				check(false, "connection is not lost in timeout race " + i);
+		}
+		check(true, "no connection lost in " + rounds + " timeout races (" + handed + " handed off)");
+		checkIdle(pool);
+	}
+	
+	// Releases race request cancels: every connection ends up with the request or back in the pool.
+	private static void checkCancelRace(SQLPool pool, ExecutorService executor, int rounds) throws Exception
+	{
+		int handed = 0;
+		for (int i = 0; i < rounds; i++)
+		{
+			SQLConnection held = pool.getAvailableConnection();
+			CompletableFuture<SQLConnection> future = pool.acquireAsync(executor);
+			await(() -> pool.getMetrics().getWaitingThreadCount() == 1, 5000L);
+			if ((i & 1) == 0)
+			{
+				future.cancel(false);
+				pool.releaseConnection(held);
+			}
+			else
+			{
+				pool.releaseConnection(held);
+				future.cancel(false);
+			}
+			try {
+				pool.releaseConnection(future.get(5L, TimeUnit.SECONDS));
+				handed++;
+			} catch (CancellationException e) {
+				// Lost the race.
+			}
+			if (!awaitIdle(pool))
+				check(false, "connection is not lost in cancel race " + i);
+		}
+		check(true, "no connection lost in " + rounds + " cancel races (" + handed + " handed off)");
+		checkIdle(pool);
+	}
+	
+	// Checks that the pool's one connection is available.
+	private static void checkIdle(SQLPool pool) throws Exception
+	{
+		check(awaitIdle(pool), "connection is back in the pool");
+		SQLConnection connection = pool.getAvailableConnection(100L);
+		pool.releaseConnection(connection);
+	}
+	
+	// Waits for the pool's one connection to be available - a cancelled request may release it on its executor.
+	private static boolean awaitIdle(SQLPool pool) throws InterruptedException
+	{
+		try {
+			await(() -> pool.getAvailableConnectionCount() == 1 && pool.getUsedConnectionCount() == 0, 5000L);
+			return true;
+		} catch (TimeoutException e) {
+			return false;
+		}
+	}
+	
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+import static com.blackrook.sql.PoolTestDriver.await;
+import static com.blackrook.sql.PoolTestDriver.check;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks the handoff of released connections to threads waiting in a {@link SQLPool},
+ * and that waiters that time out or are interrupted leave no connection behind,
+ * also when the release races the timeout or interrupt.
+ * Connections come from an in-memory driver, so no database is needed.
+ * <p>Usage: <code>SQLPoolHandoffMain [rounds]</code>
+ */
+public final class SQLPoolHandoffMain
+{
+	public static void main(String[] args) throws Exception
+	{
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		
+		try (SQLPool pool = new SQLPool(PoolTestDriver.createConnector(), 1))
+		{
+			checkHandoff(pool);
+			checkTimeout(pool);
+			checkInterrupt(pool);
+			checkTimeoutRace(pool, rounds);
+			checkInterruptRace(pool, rounds);
+		}
+		System.out.println("All checks passed.");
+	}
+	
+	// A released connection goes to the thread in line.
+	private static void checkHandoff(SQLPool pool) throws Exception
+	{
+		SQLConnection held = pool.getAvailableConnection();
+		AtomicReference<SQLConnection> got = new AtomicReference<>();
+		Thread waiter = new Thread(() -> {
+			try {
+				got.set(pool.getAvailableConnection(5000L));
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		});
+		waiter.start();
+		await(() -> pool.getMetrics().getWaitingThreadCount() == 1, 5000L);
+		pool.releaseConnection(held);
+		waiter.join(5000L);
+		check(got.get() == held, "released connection is handed to the waiter");
+		check(pool.getMetrics().getWaitingThreadCount() == 0, "no waiters after handoff");
+		check(pool.getUsedConnectionCount() == 1, "handed connection is in use");
+		pool.releaseConnection(got.get());
+		checkIdle(pool);
+	}
+	
+	// A waiter that times out leaves the line, and the next release stays in the pool.
+	private static void checkTimeout(SQLPool pool) throws Exception
+	{
+		SQLConnection held = pool.getAvailableConnection();
+		long time = System.nanoTime();
+		boolean timedOut = false;
+		try {
+			pool.getAvailableConnection(100L);
+		} catch (TimeoutException e) {
+			timedOut = true;
+		}
+		time = (System.nanoTime() - time) / 1000000L;
+		check(timedOut, "waiter times out");
+		check(time >= 90L, "waiter waits for its timeout (" + time + " ms)");
+		check(pool.getMetrics().getWaitingThreadCount() == 0, "timed out waiter leaves the line");
+		pool.releaseConnection(held);
+		checkIdle(pool);
+	}
+	
+	// An interrupted waiter leaves the line, and the next release stays in the pool.
+	private static void checkInterrupt(SQLPool pool) throws Exception
+	{
+		SQLConnection held = pool.getAvailableConnection();
+		AtomicReference<Throwable> thrown = new AtomicReference<>();
+		Thread waiter = new Thread(() -> {
+			try {
+				pool.getAvailableConnection();
+			} catch (Throwable e) {
+				thrown.set(e);
+			}
+		});
+		waiter.start();
+		await(() -> pool.getMetrics().getWaitingThreadCount() == 1, 5000L);
+		waiter.interrupt();
+		waiter.join(5000L);
+		check(thrown.get() instanceof InterruptedException, "waiter is interrupted");
+		check(pool.getMetrics().getWaitingThreadCount() == 0, "interrupted waiter leaves the line");
+		pool.releaseConnection(held);
+		checkIdle(pool);
+	}
+	
+	// Releases race waiter timeouts: every connection ends up with the waiter or back in the pool.
+	private static void checkTimeoutRace(SQLPool pool, int rounds) throws Exception
+	{
+		int handed = 0;
+		for (int i = 0; i < rounds; i++)
+		{
+			SQLConnection held = pool.getAvailableConnection();
+			AtomicReference<SQLConnection> got = new AtomicReference<>();
+			Thread waiter = new Thread(() -> {
+				try {
+					got.set(pool.getAvailableConnection(5L));
+				} catch (TimeoutException e) {
+					// Lost the race.
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			});
+			waiter.start();
+			Thread.sleep(i % 10);
+			pool.releaseConnection(held);
+			waiter.join(5000L);
+			if (got.get() != null)
+			{
+				handed++;
+				pool.releaseConnection(got.get());
+			}
+			if (pool.getAvailableConnectionCount() != 1 || pool.getUsedConnectionCount() != 0)
+				check(false, "connection is not lost in timeout race " + i);
+		}
+		check(true, "no connection lost in " + rounds + " timeout races (" + handed + " handed off)");
+		checkIdle(pool);
+	}
+	
+	// Releases race waiter interrupts: every connection ends up with the waiter or back in the pool.
+	private static void checkInterruptRace(SQLPool pool, int rounds) throws Exception
+	{
+		int handed = 0;
+		for (int i = 0; i < rounds; i++)
+		{
+			SQLConnection held = pool.getAvailableConnection();
+			AtomicReference<SQLConnection> got = new AtomicReference<>();
+			Thread waiter = new Thread(() -> {
+				try {
+					got.set(pool.getAvailableConnection());
+				} catch (InterruptedException e) {
+					// Lost the race.
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			});
+			waiter.start();
+			await(() -> pool.getMetrics().getWaitingThreadCount() == 1, 5000L);
+			if ((i & 1) == 0)
+			{
+				waiter.interrupt();
+				pool.releaseConnection(held);
+			}
+			else
+			{
+				pool.releaseConnection(held);
+				waiter.interrupt();
+			}
+			waiter.join(5000L);
+			if (got.get() != null)
+			{
+				handed++;
+				pool.releaseConnection(got.get());
+			}
+			if (pool.getAvailableConnectionCount() != 1 || pool.getUsedConnectionCount() != 0)
+				check(false, "connection is not lost in interrupt race " + i);
+		}
+		check(true, "no connection lost in " + rounds + " interrupt races (" + handed + " handed off)");
+		checkIdle(pool);
+	}
+	
+	// Checks that the pool's one connection is available.
+	private static void checkIdle(SQLPool pool) throws Exception
+	{
+		check(pool.getAvailableConnectionCount() == 1 && pool.getUsedConnectionCount() == 0, "connection is back in the pool");
+		SQLConnection connection = pool.getAvailableConnection(100L);
+		pool.releaseConnection(connection);
+	}
+	
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+import static com.blackrook.sql.PoolTestDriver.await;
+import static com.blackrook.sql.PoolTestDriver.check;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Checks the permit accounting of {@link SQLPool.Partition}s: connections released through the pool
+ * or reclaimed as leaked give back their partition permits, including overflow permits,
+ * also when leaks are reclaimed while other connections are being retrieved.
+ * Connections come from an in-memory driver, so no database is needed.
+ * <p>Usage: <code>SQLPoolPartitionMain [threads] [rounds]</code>
+ */
+public final class SQLPoolPartitionMain
+{
+	private static final long LEAK_THRESHOLD_MILLIS = 20L;
+	
+	public static void main(String[] args) throws Exception
+	{
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		
+		// Leak reports are expected - keep them quiet.
+		Logger logger = Logger.getLogger(SQLPool.class.getName());
+		logger.setLevel(Level.OFF);
+		
+		checkOverflow();
+		checkLeakReclaim();
+		checkLeakReclaimRace(threads, rounds);
+		System.out.println("All checks passed.");
+	}
+	
+	// Overflow permits are taken past the partition's limit, and given back on release.
+	private static void checkOverflow() throws Exception
+	{
+		SQLPool.Options options = new SQLPool.Options(0, 4, 0L);
+		options.setPartitionOverflow(1);
+		try (SQLPool pool = new SQLPool(PoolTestDriver.createConnector(), options))
+		{
+			SQLPool.Partition partition = pool.createPartition("capped", 1, true);
+			SQLConnection first = partition.getAvailableConnection(1000L);
+			SQLConnection second = partition.getAvailableConnection(1000L);
+			check(partition.getMetrics().getOverflowConnectionCount() == 1, "second connection uses the overflow");
+			boolean timedOut = false;
+			try {
+				partition.getAvailableConnection(50L);
+			} catch (TimeoutException e) {
+				timedOut = true;
+			}
+			check(timedOut, "partition times out past its limit and overflow");
+			pool.releaseConnection(second);
+			check(partition.getMetrics().getOverflowConnectionCount() == 0, "release through the pool gives back the overflow permit");
+			partition.releaseConnection(first);
+			check(partition.getMetrics().getUsedConnectionCount() == 0, "release through the partition gives back its permit");
+		}
+	}
+	
+	// A connection reclaimed as leaked gives back its partition permit.
+	private static void checkLeakReclaim() throws Exception
+	{
+		try (SQLPool pool = new SQLPool(PoolTestDriver.createConnector(), createLeakOptions(2)))
+		{
+			SQLPool.Partition partition = pool.createPartition("leaky", 1, false);
+			SQLConnection leaked = partition.getAvailableConnection(1000L);
+			check(partition.getMetrics().getUsedConnectionCount() == 1, "partition permit is taken");
+			check(awaitUnused(partition), "reclaimed leak gives back its partition permit");
+			SQLConnection next = partition.getAvailableConnection(1000L);
+			check(next != leaked, "partition retrieves a new connection after a leak");
+			partition.releaseConnection(next);
+			// Late release of a reclaimed connection does nothing.
+			partition.releaseConnection(leaked);
+			check(partition.getMetrics().getUsedConnectionCount() == 0, "late release of a reclaimed connection gives back nothing");
+		}
+	}
+	
+	// Leaks are reclaimed while threads retrieve connections: no permit is lost or given back twice.
+	private static void checkLeakReclaimRace(int threads, int rounds) throws Exception
+	{
+		try (SQLPool pool = new SQLPool(PoolTestDriver.createConnector(), createLeakOptions(threads)))
+		{
+			SQLPool.Partition partition = pool.createPartition("racy", threads / 2, false);
+			AtomicInteger failed = new AtomicInteger(0);
+			Thread[] workers = new Thread[threads];
+			for (int t = 0; t < threads; t++)
+			{
+				workers[t] = new Thread(() -> {
+					try {
+						for (int r = 0; r < rounds; r++)
+						{
+							SQLConnection connection = partition.getAvailableConnection(5000L);
+							// Sometimes hold past the leak threshold.
+							Thread.sleep(ThreadLocalRandom.current().nextInt(10) == 0 ? LEAK_THRESHOLD_MILLIS * 2 : 0L);
+							partition.releaseConnection(connection);
+						}
+					} catch (Exception e) {
+						e.printStackTrace();
+						failed.incrementAndGet();
+					}
+				});
+				workers[t].start();
+			}
+			for (Thread worker : workers)
+				worker.join();
+			check(failed.get() == 0, "every retrieval through the partition succeeds");
+			check(pool.getMetrics().getClosedConnectionCount() > 0, pool.getMetrics().getClosedConnectionCount() + " leaked connections reclaimed");
+			// A permit given back twice leaves the count below zero, and a lost one leaves it above.
+			check(awaitUnused(partition), "no partition permit is lost or given back twice");
+			check(partition.getMetrics().getPeakUsedConnectionCount() <= partition.getMaxConcurrency(), "partition never goes past its limit");
+		}
+	}
+	
+	// Creates pool options that reclaim leaked connections.
+	private static SQLPool.Options createLeakOptions(int maxSize)
+	{
+		SQLPool.Options options = new SQLPool.Options(0, maxSize, 0L);
+		options.setLeakDetectionThresholdMillis(LEAK_THRESHOLD_MILLIS);
+		options.setReclaimLeakedConnections(true);
+		return options;
+	}
+	
+	// Waits for a partition to have no connections in use.
+	private static boolean awaitUnused(SQLPool.Partition partition) throws InterruptedException
+	{
+		try {
+			await(() -> partition.getMetrics().getUsedConnectionCount() == 0, 5000L);
+			return true;
+		} catch (TimeoutException e) {
+			return false;
+		}
+	}
+	
+}
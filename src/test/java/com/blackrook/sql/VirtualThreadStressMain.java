@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 Black Rook Software
+ * This program and the accompanying materials are made available under the 
+ * terms of the GNU Lesser Public License v2.1 which accompanies this 
+ * distribution, and is available at 
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.sql;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Runs many virtual threads that share a small {@link SQLPool}, and reports whether any of them pinned their carrier thread.
+ * Connections come from an in-memory driver, so no database is needed. Virtual threads need Java 21 or higher -
+ * on older versions, this falls back to platform threads and only checks that every task completes.
+ * <p>Pinning is detected through the JDK's pinned thread trace, so run this with <code>-Djdk.tracePinnedThreads=short</code>
+ * (Java 21 to 23 - later versions do not pin on monitors).
+ * <p>Usage: <code>VirtualThreadStressMain [threads] [poolSize] [rounds]</code>
+ */
+public final class VirtualThreadStressMain
+{
+	private static final String URL = "jdbc:stress:";
+	
+	/**
+	 * An in-memory driver whose connections do nothing.
+	 */
+	public static class StressDriver implements java.sql.Driver
+	{
+		static
+		{
+			try {
+				DriverManager.registerDriver(new StressDriver());
+			} catch (SQLException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		
+		@Override
+		public Connection connect(String url, Properties info) throws SQLException
+		{
+			if (!acceptsURL(url))
+				return null;
+			boolean[] closed = {false};
+			return (Connection)Proxy.newProxyInstance(
+				VirtualThreadStressMain.class.getClassLoader(),
+				new Class<?>[]{Connection.class},
+				(proxy, method, args) -> {
+					switch (method.getName())
+					{
+						case "isClosed": return closed[0];
+						case "close": closed[0] = true; return null;
+						case "isValid": return !closed[0];
+						case "getAutoCommit": return true;
+						case "hashCode": return System.identityHashCode(proxy);
+						case "equals": return proxy == args[0];
+						case "toString": return "StressConnection";
+						default: return null;
+					}
+				}
+			);
+		}
+		
+		@Override
+		public boolean acceptsURL(String url)
+		{
+			return url.startsWith(URL);
+		}
+		
+		@Override
+		public DriverPropertyInfo[] getPropertyInfo(String url, Properties info)
+		{
+			return new DriverPropertyInfo[0];
+		}
+		
+		@Override
+		public int getMajorVersion()
+		{
+			return 1;
+		}
+		
+		@Override
+		public int getMinorVersion()
+		{
+			return 0;
+		}
+		
+		@Override
+		public boolean jdbcCompliant()
+		{
+			return false;
+		}
+		
+		@Override
+		public Logger getParentLogger()
+		{
+			return Logger.getLogger(StressDriver.class.getName());
+		}
+	}
+	
+	public static void main(String[] args) throws Exception
+	{
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int poolSize = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		
+		ExecutorService executor = createVirtualThreadExecutor();
+		boolean virtual = executor != null;
+		if (!virtual)
+		{
+			System.out.println("Virtual threads are not available in this Java version - using platform threads.");
+			executor = Executors.newFixedThreadPool(Math.min(threads, 256));
+		}
+		
+		// The pinned thread trace is printed to System.out - capture it.
+		PrintStream out = System.out;
+		ByteArrayOutputStream trace = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(trace, true));
+		
+		SQLConnector connector = new SQLConnector(StressDriver.class.getName(), URL);
+		AtomicInteger completed = new AtomicInteger(0);
+		AtomicInteger failed = new AtomicInteger(0);
+		AtomicInteger inUse = new AtomicInteger(0);
+		AtomicInteger maxInUse = new AtomicInteger(0);
+		long time;
+		SQLPoolMetrics metrics;
+		try (SQLPool pool = new SQLPool(connector, poolSize))
+		{
+			time = System.nanoTime();
+			for (int i = 0; i < threads; i++)
+			{
+				executor.execute(() -> {
+					try {
+						for (int r = 0; r < rounds; r++)
+						{
+							pool.getConnectionAnd((connection) -> {
+								maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+								try {
+									Thread.sleep(1);
+								} catch (InterruptedException e) {
+									Thread.currentThread().interrupt();
+								} finally {
+									inUse.decrementAndGet();
+								}
+							});
+						}
+						completed.incrementAndGet();
+					} catch (Exception e) {
+						failed.incrementAndGet();
+					}
+				});
+			}
+			executor.shutdown();
+			executor.awaitTermination(10, TimeUnit.MINUTES);
+			time = System.nanoTime() - time;
+			metrics = pool.getMetrics();
+		}
+		finally
+		{
+			System.setOut(out);
+		}
+		
+		int pinned = trace.toString().split("<== monitors", -1).length - 1;
+		System.out.println((virtual ? "Virtual" : "Platform") + " threads: " + threads + ", pool size: " + poolSize + ", rounds: " + rounds);
+		System.out.printf("Completed %d, failed %d in %.2f ms (%,.0f acquires/sec), max connections in use %d\n", 
+			completed.get(), failed.get(), time / 1000000.0, threads * rounds / (time / 1000000000.0), maxInUse.get());
+		System.out.println("Pinned stack traces: " + (virtual ? String.valueOf(pinned) : "n/a"));
+		System.out.println(metrics);
+	}
+	
+	// Gets Executors.newVirtualThreadPerTaskExecutor() if this Java version has it.
+	private static ExecutorService createVirtualThreadExecutor()
+	{
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+	
+}